@@ -0,0 +1,24 @@
+package edu.cmu.pocketsphinx.demo;
+
+import android.util.Log;
+
+/**
+ * Writes the messages of the engine to the Android log
+ */
+public class AndroidEngineLogger implements EngineLogger {
+
+    @Override
+    public boolean isEnabled() {
+        return true;
+    }
+
+    @Override
+    public void debug(String tag, String message) {
+        Log.d(tag, message);
+    }
+
+    @Override
+    public void error(String tag, String message, Throwable error) {
+        Log.e(tag, message, error);
+    }
+}
@@ -1,8 +1,13 @@
 package edu.cmu.pocketsphinx.demo;
 
-import android.os.AsyncTask;
+import android.os.Handler;
+import android.os.Looper;
 import android.util.Log;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.Executor;
+
 /**
  * This class is the controller of the view and the model. It is the brain of the game.
  * It talks over the network through the MultiplayerHandler class and updates the view whenever the model changes
@@ -11,6 +16,8 @@ import android.util.Log;
 public class Connect4Controller {
 
     private static final String PLAYER_1_NAME_AGAINST_BOT = "You";
+    //Time the finger rests on a column before the bot searches its reply to it
+    private static final long HOVER_DELAY_MILLIS = 100;
 
     private Connect4Model mModel;
     private Connect4View mView;
@@ -18,6 +25,35 @@ public class Connect4Controller {
     private boolean mPlayerNumber;
 
     private Connect4Bot mBot;
+    //The bot is only used on the engine's thread, its moves come back on the main thread
+    private EngineExecutor mEngine;
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+    private final Executor mMainThread = new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            mHandler.post(command);
+        }
+    };
+    private final EngineExecutor.MoveCallback mMoveCallback = new EngineExecutor.MoveCallback() {
+        @Override
+        public void onMove(BotMove move) {
+            onBotMove(move);
+        }
+    };
+    private OpeningBook mBook;
+    //Keeps the search from starving the speech recognizer
+    private final CpuScheduler mScheduler = new CpuScheduler();
+    private Difficulty mDifficulty = Difficulty.TIMED;
+    //Column under the user's finger, and the one the bot searches its reply to, -1 if none
+    private int mHoveredColumn = -1;
+    private int mSpeculatedColumn = -1;
+    private final Runnable mSpeculateTask = new Runnable() {
+        @Override
+        public void run() {
+            speculate();
+        }
+    };
+    private final EngineLogger mLogger = new AndroidEngineLogger();
 
 
     public Connect4Controller(Connect4Model model, Connect4View view ) {
@@ -26,7 +62,11 @@ public class Connect4Controller {
         mView = view;
         mPlayerNumber = Connect4Model.PLAYER_1;
 
-        mBot = new Connect4Bot();
+        mBot = new Connect4Bot(mModel.getGeometry());
+        mBot.setLogger(mLogger);
+        mBot.setDifficulty(mDifficulty);
+        mBot.setScheduler(mScheduler);
+        mEngine = new EngineExecutor(mBot, mMainThread);
         mModel.setPlayer1Name(PLAYER_1_NAME_AGAINST_BOT);
         mModel.setPlayer2Name(Connect4Bot.NAME);
     }
@@ -38,6 +78,7 @@ public class Connect4Controller {
      */
     public void userTouchedScreen(int column) {
 
+        clearHover();
         if (mModel.hasWinner()) {
             return;
         }
@@ -57,7 +98,7 @@ public class Connect4Controller {
                 mModel.checkForWinner();
 
                 if (!mModel.hasWinner()) {
-                    new BotAsyncTask().execute(mModel.getBoard());
+                    requestBotMove();
                     nextPlayerTurn();
                 }
                 else {
@@ -72,6 +113,54 @@ public class Connect4Controller {
         mView.invalidate();
     }
 
+    /**
+     * Called by the view while the user's finger is on the screen, before it is lifted. Once the
+     * finger rests on a column the bot starts searching its reply to it, so its move comes sooner
+     * if the user plays there. Passing over columns leaves the current search running.
+     * @param column column under the finger, -1 if the finger is off the board or the touch was
+     *               cancelled
+     */
+    public void userHoveredColumn(int column) {
+
+        //A full column can't be played, the bot keeps searching what it was
+        if (column != -1 && mModel.topBall(column) == mModel.getHeight() - 1) {
+            return;
+        }
+        if (column == mHoveredColumn || mModel.hasWinner() || mModel.getPlayerTurn() != mPlayerNumber
+                || !mModel.getButtonEnable()) {
+            return;
+        }
+        mHoveredColumn = column;
+        mHandler.removeCallbacks(mSpeculateTask);
+        if (column != mSpeculatedColumn) {
+            mHandler.postDelayed(mSpeculateTask, HOVER_DELAY_MILLIS);
+        }
+    }
+
+    /**
+     * Runs once the finger rested on a column, the bot searches its reply to it. Off the board it
+     * goes back to guessing the user's move.
+     */
+    private void speculate() {
+
+        if (mHoveredColumn == mSpeculatedColumn || mModel.hasWinner()
+                || mModel.getPlayerTurn() != mPlayerNumber || !mModel.getButtonEnable()) {
+            return;
+        }
+        mSpeculatedColumn = mHoveredColumn;
+        mEngine.speculate(mModel.getSnapshot(), mSpeculatedColumn);
+    }
+
+    /**
+     * Forgets the finger, called when the board changes. The engine's search is left to the caller.
+     */
+    private void clearHover() {
+
+        mHandler.removeCallbacks(mSpeculateTask);
+        mHoveredColumn = -1;
+        mSpeculatedColumn = -1;
+    }
+
     /**
      * This is called when the user clicks the Play Again button after a game is complete.
      * Starts a new game or tells the opponent if its online
@@ -79,22 +168,83 @@ public class Connect4Controller {
     public void userClickedPlayAgain() {
 
         mModel.reset();
+        clearHover();
+        //The bot stops thinking about the last game and starts afresh so it plays the same way
+        mEngine.newGame();
 
         //Must start the bot if its his turn next game
         if (mModel.getPlayerTurn() != mPlayerNumber) {
-//            new BotAsyncTask().execute(mModel.getBoard());
-            new BotAsyncTask().executeOnExecutor(AsyncTask.THREAD_POOL_EXECUTOR, mModel.getBoard());
+            requestBotMove();
         }
 
         mView.invalidate();
     }
 
+    /**
+     * Starts a new game on a board of another size or with another number of balls in a row to win.
+     * The scores are kept.
+     * @param geometry size of the board and number of balls in a row needed to win
+     */
+    public void newGame(BoardGeometry geometry) {
+        newGame(geometry, mDifficulty);
+    }
+
+    /**
+     * Starts a new game, the scores are kept
+     * @param geometry size of the board and number of balls in a row needed to win
+     * @param difficulty how strongly the bot plays
+     */
+    public void newGame(BoardGeometry geometry, Difficulty difficulty) {
+
+        mDifficulty = difficulty;
+        clearHover();
+
+        //The bot is made for one board, it is replaced along with the board
+        if (!geometry.equals(mBot.getGeometry())) {
+            mEngine.shutdown();
+            mBot = new Connect4Bot(geometry);
+            mBot.setLogger(mLogger);
+            mBot.setOpeningBook(mBook);
+            mBot.setScheduler(mScheduler);
+            mEngine = new EngineExecutor(mBot, mMainThread);
+        }
+        else {
+            mEngine.newGame();
+        }
+        mBot.setDifficulty(difficulty);
+
+        mModel.reset(geometry);
+        mView.onBoardChanged();
+
+        //Must start the bot if its his turn next game
+        if (mModel.getPlayerTurn() != mPlayerNumber) {
+            requestBotMove();
+        }
+    }
+
+    /**
+     * @return how strongly the bot plays in the current game
+     */
+    public Difficulty getDifficulty() {
+        return mDifficulty;
+    }
+
+    /**
+     * @return the scheduler sharing the CPU between the bot and the speech recognizer, to be told
+     * when the player speaks
+     */
+    public CpuScheduler getScheduler() {
+        return mScheduler;
+    }
+
     /**
      * This is called when the user clicks the Undo button
      * Recover the last one User's play
      */
     public void userClickedUndo() {
 
+        mEngine.cancel();
+        clearHover();
         mModel.removerLastMove();
         enableButton();
         mView.invalidate();
@@ -114,6 +264,38 @@ public class Connect4Controller {
         mModel.enableButton();
     }
 
+    /**
+     * Loads the bot's opening book. The bot searches every move if the file can't be read.
+     * Can be called from a background thread, the book is handed to the bot on the main thread.
+     * @param file book file synced with the other assets
+     */
+    public void loadOpeningBook(File file) {
+        final OpeningBook book;
+        try {
+            book = OpeningBook.open(file);
+        }
+        catch (IOException e) {
+            Log.w("Connect4Controller", "Couldn't load the opening book: " + e.getMessage());
+            return;
+        }
+        //mBook and mBot are only used on the main thread, where newGame replaces the bot
+        mMainThread.execute(new Runnable() {
+            @Override
+            public void run() {
+                mBook = book;
+                mBot.setOpeningBook(book);
+            }
+        });
+    }
+
+    /**
+     * Called when the activity is destroyed, stops the bot's helper threads
+     */
+    public void release() {
+        clearHover();
+        mEngine.shutdown();
+    }
+
     /**
      * Helper function which goes to next player turn and updates the view
      */
@@ -125,30 +307,39 @@ public class Connect4Controller {
 
 
     /**
-     * This class runs the bot on a separate thread so the main thread is not blocked
-     * After the bot is run it updates the board
+     * Asks the engine for the bot's move, the buttons stay disabled until it is played
      */
-    private class BotAsyncTask extends AsyncTask<Connect4Model.Color[][], Void, Integer> {
+    private void requestBotMove() {
 
-        @Override
-        protected Integer doInBackground(Connect4Model.Color[][] ... params) {
+        disableButton();
+        mEngine.requestMove(mModel.getSnapshot(), mMoveCallback);
+    }
 
-            disableButton();
-            return mBot.getNextMove(params[0]);
-        }
+    /**
+     * Plays the bot's move, on the main thread
+     * @param botMove move found by the bot
+     */
+    private void onBotMove(BotMove botMove) {
 
-        @Override
-        protected void onPostExecute(Integer move) {
+        //The board changed while the bot was thinking, the move is for another board
+        if (botMove.isStale(mModel)) {
+            return;
+        }
+        int move = botMove.getColumn();
+        mModel.addBall(move, Connect4Model.Color.YELLOW);
 
-            mModel.addBall(move, Connect4Model.Color.YELLOW);
+        //record
+        mModel.recordBall(move);
 
-            //record
-            mModel.recordBall(move);
+        nextPlayerTurn();
+        enableButton();
+        mModel.checkForWinner();
+        mView.invalidate();
 
-            nextPlayerTurn();
-            enableButton();
-            mModel.checkForWinner();
-            mView.invalidate();
+        //The bot thinks ahead while the user does
+        if (!mModel.hasWinner()) {
+            clearHover();
+            mEngine.ponder(mModel.getSnapshot());
         }
     }
 
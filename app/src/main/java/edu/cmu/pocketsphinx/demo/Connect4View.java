@@ -112,25 +112,45 @@ public class Connect4View extends View {
     protected void onSizeChanged(int w, int h, int oldw, int oldh) {
 
         super.onSizeChanged(w, h, oldw, oldh);
+        layoutBoard(w, h);
+    }
+
+    /**
+     * Called by the controller when a game starts on a board of another size
+     */
+    public void onBoardChanged() {
+        layoutBoard(getWidth(), getHeight());
+        invalidate();
+    }
+
+    /**
+     * Works out where the board and the buttons go for the size of the view and the board
+     * @param w width of the view
+     * @param h height of the view
+     */
+    private void layoutBoard(int w, int h) {
+
+        int boardWidth = mModel.getWidth();
+        int boardHeight = mModel.getHeight();
 
         mPlayer1PosX = w/4;
         mCenterPos = w/2;
         mPlayer2PosX = (3*w)/4;
 
-        mGridWidth = w/ Connect4Model.BOARD_WIDTH;
+        mGridWidth = w/ boardWidth;
         mGridHeight = mGridWidth;
 
-        mBoardRect = new Rect(0, (int)(h - mGridHeight *Connect4Model.BOARD_HEIGHT), w, h);
+        mBoardRect = new Rect(0, (int)(h - mGridHeight *boardHeight), w, h);
 
         mPlayAgainRect = new Rect( (int) mCenterPos - PLAY_AGAIN_BUTTON_WIDTH/2,
-                (int)( mBoardRect.bottom - mGridHeight *(Connect4Model.BOARD_HEIGHT+1) - PLAY_AGAIN_BUTTON_HEIGHT - TEXT_PADDING ),
+                (int)( mBoardRect.bottom - mGridHeight *(boardHeight+1) - PLAY_AGAIN_BUTTON_HEIGHT - TEXT_PADDING ),
                 (int) mCenterPos + PLAY_AGAIN_BUTTON_WIDTH/2,
-                (int)( mBoardRect.bottom - mGridHeight *(Connect4Model.BOARD_HEIGHT+1)) - TEXT_PADDING);
+                (int)( mBoardRect.bottom - mGridHeight *(boardHeight+1)) - TEXT_PADDING);
 
         mUndoRect = new Rect( (int) w - PLAY_AGAIN_BUTTON_WIDTH *5 / 4,
-                (int)( mBoardRect.bottom - mGridHeight *(Connect4Model.BOARD_HEIGHT+1) - PLAY_AGAIN_BUTTON_HEIGHT - TEXT_PADDING ),
+                (int)( mBoardRect.bottom - mGridHeight *(boardHeight+1) - PLAY_AGAIN_BUTTON_HEIGHT - TEXT_PADDING ),
                 (int) w- PLAY_AGAIN_BUTTON_WIDTH *1 / 4,
-                (int)( mBoardRect.bottom - mGridHeight *(Connect4Model.BOARD_HEIGHT+1)) - TEXT_PADDING);
+                (int)( mBoardRect.bottom - mGridHeight *(boardHeight+1)) - TEXT_PADDING);
     }
 
     @Override
@@ -152,8 +172,8 @@ public class Connect4View extends View {
     private void drawBoard(Canvas canvas) {
         Connect4Model.Color board[][] = mModel.getBoard();
 
-        for (int i = 0; i < Connect4Model.BOARD_WIDTH; i++) {
-            for (int j = 0; j < Connect4Model.BOARD_HEIGHT; j++) {
+        for (int i = 0; i < mModel.getWidth(); i++) {
+            for (int j = 0; j < mModel.getHeight(); j++) {
 
 //                if (board[i][j] == Connect4Model.Color.EMPTY) {
 //                    mBoardPaint.setColor(Color.WHITE);
@@ -207,10 +227,11 @@ public class Connect4View extends View {
                         mWinPaint);
 
                 //Highlights the connected circles
-                int gap_X = ( winningMove.endPos.x - winningMove.startPos.x) / 3;
-                int gap_Y = ( winningMove.endPos.y - winningMove.startPos.y) / 3;
+                int winLength = mModel.getGeometry().getWinLength();
+                int gap_X = ( winningMove.endPos.x - winningMove.startPos.x) / (winLength - 1);
+                int gap_Y = ( winningMove.endPos.y - winningMove.startPos.y) / (winLength - 1);
 
-                for (int i = 0; i < 4; i++) {
+                for (int i = 0; i < winLength; i++) {
                     int x = winningMove.startPos.x + i*gap_X;
                     int y = winningMove.startPos.y + i*gap_Y;
 
@@ -265,10 +286,10 @@ public class Connect4View extends View {
      * @param canvas
      */
     private void drawLineNumbers(Canvas canvas) {
-        for (int i = 0; i < 7; i++) {
+        for (int i = 0; i < mModel.getWidth(); i++) {
             canvas.drawText(Integer.toString(i),
                     (int) mBoardRect.left + (mGridWidth * ( i + 0.5f))
-                    , (int) (mBoardRect.bottom - ( mGridHeight * Connect4Model.BOARD_HEIGHT)-TEXT_PADDING),
+                    , (int) (mBoardRect.bottom - ( mGridHeight * mModel.getHeight())-TEXT_PADDING),
                     mLineNumberPaint);
         }
     }
@@ -311,6 +332,19 @@ public class Connect4View extends View {
 
     }
 
+    /**
+     * @param x x coordinate of a touch on the board
+     * @return the column under it
+     */
+    private int getColumnAt(float x) {
+
+        int column = (int) (x / mGridWidth);
+        if (column == mModel.getWidth()) {
+            column--;
+        }
+        return column;
+    }
+
     @Override
     public boolean onTouchEvent(MotionEvent event) {
 
@@ -318,24 +352,29 @@ public class Connect4View extends View {
         float y = event.getY();
         Log.d("BLAH" , "FDSFSDF");
 
-        if (event.getAction() == MotionEvent.ACTION_DOWN) {
+        if (event.getAction() == MotionEvent.ACTION_DOWN || event.getAction() == MotionEvent.ACTION_MOVE) {
 
+            //The bot starts thinking about the column under the finger before it is lifted
+            mController.userHoveredColumn(mBoardRect.contains((int)x, (int)y) ? getColumnAt(x) : -1);
         }
-        else if (event.getAction() == MotionEvent.ACTION_MOVE) {
+        else if (event.getAction() == MotionEvent.ACTION_CANCEL) {
 
+            mController.userHoveredColumn(-1);
         }
         else if (event.getAction() == MotionEvent.ACTION_UP) {
 
+            //Lifted off the board, the bot goes back to guessing the user's move
+            if (!mBoardRect.contains((int)x, (int)y)) {
+                mController.userHoveredColumn(-1);
+            }
+
             //Checks if any of the presses were on the board or button
 
             //click board
             if ( mModel.getButtonEnable() && mBoardRect.contains((int)x, (int)y)) {
                 mController.disableButton();
 
-                int column = (int) (x / mGridWidth);
-                if (column == Connect4Model.BOARD_WIDTH) {
-                    column--;
-                }
+                int column = getColumnAt(x);
 
                 /**
                             * The place to place ball
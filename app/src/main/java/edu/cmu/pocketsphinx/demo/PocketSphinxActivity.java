@@ -179,6 +179,7 @@ public class PocketSphinxActivity extends Activity implements RecognitionListene
             try {
                 Assets assets = new Assets(activityReference.get());
                 File assetDir = assets.syncAssets();
+                activityReference.get().mController.loadOpeningBook(new File(assetDir, OpeningBook.FILE_NAME));
                 activityReference.get().setupRecognizer(assetDir);
             } catch (IOException e) {
                 return e;
@@ -220,6 +221,9 @@ public class PocketSphinxActivity extends Activity implements RecognitionListene
             recognizer.cancel();
             recognizer.shutdown();
         }
+        if (mController != null) {
+            mController.release();
+        }
         // +
         robotAPI.release();
     }
@@ -236,7 +240,7 @@ public class PocketSphinxActivity extends Activity implements RecognitionListene
             return;
 
         String text = hypothesis.getHypstr();
-        int column_select;
+        int column_select = -1;
         Log.d("Spoken onPartialResult", text);
         if ((text.length() <= KEYPHRASE_3.length()))
         {
@@ -272,6 +276,12 @@ public class PocketSphinxActivity extends Activity implements RecognitionListene
                     break;
             }
 
+            //A keyword is recognized, the bot can search at full speed again
+            if (column_select != -1) {
+                mController.getScheduler().onSpeechRecognized();
+                mController.getScheduler().onSpeechEnded();
+            }
+
             // 語音輸入衝突點
             try
             {
@@ -298,8 +308,12 @@ public class PocketSphinxActivity extends Activity implements RecognitionListene
     public void onResult(Hypothesis hypothesis) {
     }
 
+    /**
+     * The bot's search is throttled while the player speaks, so the recognizer keeps up
+     */
     @Override
     public void onBeginningOfSpeech() {
+        mController.getScheduler().onSpeechStarted();
     }
 
     /**
@@ -307,6 +321,9 @@ public class PocketSphinxActivity extends Activity implements RecognitionListene
      */
     @Override
     public void onEndOfSpeech() {
+        CpuScheduler scheduler = mController.getScheduler();
+        scheduler.onSpeechEnded();
+        Log.d("CpuScheduler", scheduler.toString());
         if (!recognizer.getSearchName().equals(KEYPHRASE))
             switchSearch(KWS_SEARCH);
     }
@@ -369,6 +386,7 @@ public class PocketSphinxActivity extends Activity implements RecognitionListene
     @Override
     public void onTimeout() {
 
+        mController.getScheduler().onSpeechEnded();
         switchSearch(KWS_SEARCH);
     }
 
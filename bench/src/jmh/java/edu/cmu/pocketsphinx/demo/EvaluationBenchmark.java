@@ -0,0 +1,62 @@
+package edu.cmu.pocketsphinx.demo;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Static rating of a board by the bot and the game's win check. Every operation goes over all the
+ * positions of a phase of the corpus, see BenchmarkPositions.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class EvaluationBenchmark {
+
+    @Param({"7x6c4", "8x7c4", "9x7c4", "7x6c5", "9x7c5"})
+    public String geometry;
+
+    @Param({BenchmarkPositions.OPENING, BenchmarkPositions.MIDDLEGAME, BenchmarkPositions.ENDGAME})
+    public String phase;
+
+    private Connect4Bot mBot;
+    private Connect4Position mPositions[];
+    private Connect4Model mModels[];
+
+    @Setup
+    public void setup() {
+        BoardGeometry boardGeometry = BoardGeometry.parse(geometry);
+        mBot = new Connect4Bot(boardGeometry, Connect4Bot.DEFAULT_TABLE_MEMORY, 1, MoveOrderer.ALL_SOURCES);
+        mPositions = BenchmarkPositions.getPositions(boardGeometry, phase);
+        mModels = BenchmarkPositions.getModels(boardGeometry, phase);
+    }
+
+    @Benchmark
+    public void rateBoard(Blackhole blackhole) {
+        for (Connect4Model model : mModels) {
+            blackhole.consume(mBot.rateBoard(model.getBoard()));
+        }
+    }
+
+    @Benchmark
+    public void ratePosition(Blackhole blackhole) {
+        for (Connect4Position position : mPositions) {
+            blackhole.consume(mBot.rateBoard(position));
+        }
+    }
+
+    @Benchmark
+    public void checkForWinner(Blackhole blackhole) {
+        for (Connect4Model model : mModels) {
+            blackhole.consume(model.checkForWinner());
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package edu.cmu.pocketsphinx.demo;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The bot's move as the game asks for it, on the standard board. The search stops at the bot's
+ * time limit so the time per move says little, the nodes counter is the figure to watch.
+ * The bot keeps its tables between moves as it does during a game, and endgame moves come from
+ * the solver.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.AverageTime, Mode.Throughput})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+public class MoveBenchmark {
+
+    @Param({BenchmarkPositions.OPENING, BenchmarkPositions.MIDDLEGAME, BenchmarkPositions.ENDGAME})
+    public String phase;
+
+    @Param({"1"})
+    public int threads;
+
+    private Connect4Bot mBot;
+    private Connect4Model mModels[];
+
+    @Setup
+    public void setup() {
+        mBot = new Connect4Bot(BoardGeometry.STANDARD, Connect4Bot.DEFAULT_TABLE_MEMORY, threads,
+                MoveOrderer.ALL_SOURCES);
+        mModels = BenchmarkPositions.getModels(BoardGeometry.STANDARD, phase);
+    }
+
+    @TearDown
+    public void tearDown() {
+        mBot.shutdown();
+    }
+
+    @Benchmark
+    public void getNextMove(SearchCounters counters, Blackhole blackhole) {
+        for (Connect4Model model : mModels) {
+            blackhole.consume(mBot.getNextMove(model.getBoard()));
+            counters.nodes += mBot.getNodes();
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package edu.cmu.pocketsphinx.demo;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The bot's search run to a fixed depth on every board size, without a time limit so the work done
+ * is the same on every run. Every operation searches all the positions of a phase of the corpus by
+ * iterative deepening from an empty table, as the bot does for a move.
+ *
+ * The nodes counter in throughput mode is in positions per millisecond, thousands of positions
+ * per second.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.AverageTime, Mode.Throughput})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class SearchBenchmark {
+
+    @Param({"7x6c4", "8x7c4", "9x7c4", "7x6c5", "9x7c5"})
+    public String geometry;
+
+    @Param({BenchmarkPositions.OPENING, BenchmarkPositions.MIDDLEGAME, BenchmarkPositions.ENDGAME})
+    public String phase;
+
+    @Param({"8"})
+    public int depth;
+
+    private TranspositionTable mTable;
+    private SearchWorker mWorker;
+    private Connect4Position mPositions[];
+
+    @Setup
+    public void setup() {
+        BoardGeometry boardGeometry = BoardGeometry.parse(geometry);
+        Connect4Bot bot = new Connect4Bot(boardGeometry, Connect4Bot.DEFAULT_TABLE_MEMORY, 1,
+                MoveOrderer.ALL_SOURCES);
+        mTable = new TranspositionTable(Connect4Bot.DEFAULT_TABLE_MEMORY);
+        mWorker = new SearchWorker(bot, boardGeometry, mTable, MoveOrderer.ALL_SOURCES);
+        mPositions = BenchmarkPositions.getPositions(boardGeometry, phase);
+    }
+
+    @Setup(Level.Invocation)
+    public void clearTable() {
+        mTable.clear();
+    }
+
+    @Benchmark
+    public void search(SearchCounters counters, Blackhole blackhole) {
+        for (Connect4Position position : mPositions) {
+            mWorker.prepare(position, 1);
+            for (int d = 1; d <= depth && d <= position.getSpacesLeft(); d++) {
+                mWorker.search(d);
+            }
+            counters.nodes += mWorker.getNodes();
+            blackhole.consume(mWorker.getBestMove());
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package edu.cmu.pocketsphinx.demo;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Positions searched by a benchmark. JMH reports them as a rate next to the operations, in the
+ * time unit of the benchmark.
+ */
+@State(Scope.Thread)
+@AuxCounters(AuxCounters.Type.OPERATIONS)
+public class SearchCounters {
+
+    public long nodes;
+
+    @Setup(Level.Iteration)
+    public void clear() {
+        nodes = 0;
+    }
+}
@@ -0,0 +1,46 @@
+package edu.cmu.pocketsphinx.demo;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Exact solving of the endgame positions of the corpus, from an empty table. The solver only
+ * plays on the standard board.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.AverageTime, Mode.Throughput})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class SolverBenchmark {
+
+    private Connect4Solver mSolver;
+    private Connect4Position mPositions[];
+
+    @Setup
+    public void setup() {
+        mSolver = new Connect4Solver();
+        mPositions = BenchmarkPositions.getPositions(BoardGeometry.STANDARD, BenchmarkPositions.ENDGAME);
+    }
+
+    @Setup(Level.Invocation)
+    public void clearTable() {
+        mSolver.clear();
+    }
+
+    @Benchmark
+    public void solve(SearchCounters counters, Blackhole blackhole) {
+        long nodes = mSolver.getNodes();
+        for (Connect4Position position : mPositions) {
+            blackhole.consume(mSolver.getBestMove(position));
+        }
+        counters.nodes += mSolver.getNodes() - nodes;
+    }
+}
@@ -0,0 +1,156 @@
+package edu.cmu.pocketsphinx.demo;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Offline check that searching allocates nothing once the bot is warmed up, run by the
+ * allocationCheck task of the bench module, which the build depends on. The benchmarks measure
+ * the allocation rate, this fails when it isn't zero.
+ *
+ * The bytes allocated by the calling thread are counted across a search to a fixed depth and across
+ * moves of the bot searching on that thread, on the positions of the benchmarks. Both are run
+ * several times first so the JIT compiled the code and the check doesn't see the interpreter.
+ *
+ * Usage: AllocationCheck
+ */
+public class AllocationCheck {
+
+    private static final String BOARDS[] = {"7x6c4", "9x7c5", "5x4c3"};
+    private static final String PHASES[] = {BenchmarkPositions.OPENING, BenchmarkPositions.MIDDLEGAME,
+            BenchmarkPositions.ENDGAME};
+
+    private static final int WARMUP_ROUNDS = 20;
+    private static final int SEARCH_DEPTH = 8;
+
+    //Searches on the calling thread only and stops at the same node every time
+    private static final Difficulty CHECKED_DIFFICULTY = new Difficulty("Allocation check",
+            Difficulty.NO_LIMIT, 20000, Difficulty.NO_LIMIT, 0, false);
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    private static long sMeasurementBytes;
+
+    public static void main(String args[]) {
+
+        if (!THREADS.isThreadAllocatedMemorySupported()) {
+            System.out.println("FAILED: this JVM doesn't count the bytes allocated by a thread");
+            System.exit(1);
+        }
+        THREADS.setThreadAllocatedMemoryEnabled(true);
+        sMeasurementBytes = getMeasurementBytes();
+
+        boolean passed = true;
+        for (String board : BOARDS) {
+            BoardGeometry geometry = BoardGeometry.parse(board);
+            for (String phase : PHASES) {
+                passed &= checkSearch(geometry, phase);
+                passed &= checkMoves(geometry, phase);
+            }
+        }
+        System.out.println(passed ? "All checks passed" : "FAILED");
+        if (!passed) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * @param geometry board of the positions
+     * @param phase phase of the benchmark positions
+     * @return true if searching the positions to SEARCH_DEPTH allocated nothing
+     */
+    private static boolean checkSearch(BoardGeometry geometry, String phase) {
+
+        Connect4Bot bot = new Connect4Bot(geometry, Connect4Bot.DEFAULT_TABLE_MEMORY, 1,
+                MoveOrderer.ALL_SOURCES);
+        TranspositionTable table = new TranspositionTable(Connect4Bot.DEFAULT_TABLE_MEMORY);
+        SearchWorker worker = new SearchWorker(bot, geometry, table, MoveOrderer.ALL_SOURCES);
+        Connect4Position positions[] = BenchmarkPositions.getPositions(geometry, phase);
+
+        long bytes = 0;
+        long nodes = 0;
+        for (int round = 0; round <= WARMUP_ROUNDS; round++) {
+            table.clear();
+            long start = getAllocatedBytes();
+            nodes = 0;
+            for (Connect4Position position : positions) {
+                worker.prepare(position, 1);
+                for (int depth = 1; depth <= SEARCH_DEPTH && depth <= position.getSpacesLeft(); depth++) {
+                    worker.search(depth);
+                }
+                nodes += worker.getNodes();
+            }
+            bytes = getAllocatedBytes() - start - sMeasurementBytes;
+        }
+        bot.shutdown();
+        return report(geometry, phase, "search", bytes, nodes);
+    }
+
+    /**
+     * @param geometry board of the positions
+     * @param phase phase of the benchmark positions
+     * @return true if the bot's moves in the positions allocated nothing
+     */
+    private static boolean checkMoves(BoardGeometry geometry, String phase) {
+
+        Connect4Bot bot = new Connect4Bot(geometry, Connect4Bot.DEFAULT_TABLE_MEMORY, 1,
+                MoveOrderer.ALL_SOURCES);
+        bot.setDifficulty(CHECKED_DIFFICULTY);
+        //The listener gets the bot's own stats, getSearchStats would allocate a copy
+        NodeCounter counter = new NodeCounter();
+        bot.setSearchListener(counter);
+        Connect4Model models[] = BenchmarkPositions.getModels(geometry, phase);
+
+        long bytes = 0;
+        for (int round = 0; round <= WARMUP_ROUNDS; round++) {
+            long start = getAllocatedBytes();
+            counter.mNodes = 0;
+            for (Connect4Model model : models) {
+                //Forgets the table so every round searches as much
+                bot.clear();
+                bot.getNextMove(model.getBoard());
+            }
+            bytes = getAllocatedBytes() - start - sMeasurementBytes;
+        }
+        bot.shutdown();
+        return report(geometry, phase, "moves", bytes, counter.mNodes);
+    }
+
+    /**
+     * @return the bytes allocated so far by the calling thread
+     */
+    private static long getAllocatedBytes() {
+        return THREADS.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    /**
+     * @return the bytes allocated by a call to getAllocatedBytes, counted in every measurement
+     */
+    private static long getMeasurementBytes() {
+        long bytes = 0;
+        for (int round = 0; round <= WARMUP_ROUNDS; round++) {
+            long start = getAllocatedBytes();
+            bytes = getAllocatedBytes() - start - sMeasurementBytes;
+        }
+        return bytes;
+    }
+
+    /**
+     * Adds up the nodes of the bot's moves
+     */
+    private static class NodeCounter implements SearchListener {
+
+        private long mNodes;
+
+        @Override
+        public void onSearchDone(SearchStats stats) {
+            mNodes += stats.getNodes();
+        }
+    }
+
+    private static boolean report(BoardGeometry geometry, String phase, String check, long bytes, long nodes) {
+        boolean passed = bytes == 0;
+        System.out.println(geometry + " " + phase + " " + check + ": " + bytes + " bytes allocated for "
+                + nodes + " nodes" + (passed ? "" : " FAILED"));
+        return passed;
+    }
+}
@@ -0,0 +1,126 @@
+package edu.cmu.pocketsphinx.demo;
+
+import java.util.Random;
+
+/**
+ * Fixed corpus of positions the benchmarks and AllocationCheck are run on.
+ *
+ * The positions of a phase are random games played from fixed seeds, so every run of the
+ * benchmarks and every version of the engine sees the same ones. No move of a game wins and every
+ * game stops with the bot, the second player, to move.
+ */
+final class BenchmarkPositions {
+
+    public static final String OPENING = "opening";
+    public static final String MIDDLEGAME = "middlegame";
+    public static final String ENDGAME = "endgame";
+
+    //Number of positions of every phase
+    public static final int COUNT = 4;
+
+    private BenchmarkPositions() {
+    }
+
+    /**
+     * @param geometry board the games are played on
+     * @param phase OPENING, MIDDLEGAME or ENDGAME
+     * @return the moves of every game of the phase, in columns from 0
+     */
+    static int[][] getMoves(BoardGeometry geometry, String phase) {
+
+        int balls;
+        if (OPENING.equals(phase)) {
+            balls = geometry.getSize() / 10;
+        }
+        else if (MIDDLEGAME.equals(phase)) {
+            balls = geometry.getSize() / 3;
+        }
+        else if (ENDGAME.equals(phase)) {
+            balls = geometry.getSize() * 2 / 3;
+        }
+        else {
+            throw new IllegalArgumentException("Unknown phase: " + phase);
+        }
+        //The human plays first, so the bot is to move after an odd number of balls
+        balls |= 1;
+
+        int games[][] = new int[COUNT][];
+        long seed = phase.hashCode();
+        for (int i = 0; i < COUNT; i++) {
+            do {
+                games[i] = playGame(geometry, balls, new Random(seed++));
+            } while (games[i] == null);
+        }
+        return games;
+    }
+
+    /**
+     * @param geometry board the game is played on
+     * @param balls number of balls to play
+     * @param random chooses the moves
+     * @return the moves of the game, or null if it couldn't be played without winning
+     */
+    private static int[] playGame(BoardGeometry geometry, int balls, Random random) {
+
+        Connect4Position position = new Connect4Position(geometry);
+        int moves[] = new int[balls];
+        for (int i = 0; i < balls; i++) {
+            int col = -1;
+            for (int tries = 0; tries < 4 * geometry.getWidth() && col == -1; tries++) {
+                int candidate = random.nextInt(geometry.getWidth());
+                if (position.canPlay(candidate)) {
+                    position.play(candidate);
+                    if (position.lastMoveWon()) {
+                        position.undo(candidate);
+                    }
+                    else {
+                        col = candidate;
+                    }
+                }
+            }
+            if (col == -1) {
+                return null;
+            }
+            moves[i] = col;
+        }
+        return moves;
+    }
+
+    /**
+     * @param geometry board the games are played on
+     * @param phase OPENING, MIDDLEGAME or ENDGAME
+     * @return the positions of the phase
+     */
+    static Connect4Position[] getPositions(BoardGeometry geometry, String phase) {
+
+        int games[][] = getMoves(geometry, phase);
+        Connect4Position positions[] = new Connect4Position[games.length];
+        for (int i = 0; i < games.length; i++) {
+            positions[i] = new Connect4Position(geometry);
+            for (int col : games[i]) {
+                positions[i].play(col);
+            }
+        }
+        return positions;
+    }
+
+    /**
+     * @param geometry board the games are played on
+     * @param phase OPENING, MIDDLEGAME or ENDGAME
+     * @return the positions of the phase as the game's models
+     */
+    static Connect4Model[] getModels(BoardGeometry geometry, String phase) {
+
+        int games[][] = getMoves(geometry, phase);
+        Connect4Model models[] = new Connect4Model[games.length];
+        for (int i = 0; i < games.length; i++) {
+            models[i] = new Connect4Model(geometry);
+            for (int k = 0; k < games[i].length; k++) {
+                int col = games[i][k];
+                models[i].addBall(col, k % 2 == 0 ? Connect4Model.Color.RED : Connect4Model.Color.YELLOW);
+                models[i].recordBall(col);
+            }
+        }
+        return models;
+    }
+}
@@ -0,0 +1,86 @@
+package edu.cmu.pocketsphinx.demo;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
+/**
+ * Offline check that the difficulties limited by depth and nodes play the same moves every time,
+ * run by the reproducibilityCheck task of the bench module, which the build depends on.
+ *
+ * Every level plays fixed games twice against moves drawn from a fixed seed: on a new bot, then on
+ * the same bot after Connect4Bot.clear, as the app does between games. The moves of both games
+ * must be the same. The bot is made with a thread per core, the level decides how many it uses.
+ *
+ * Usage: ReproducibilityCheck [opening-book]
+ *
+ * With the book file the levels using it answer the first moves from it on its board.
+ */
+public class ReproducibilityCheck {
+
+    private static final Difficulty LEVELS[] = {Difficulty.EASY, Difficulty.MEDIUM, Difficulty.HARD};
+    private static final String BOARDS[] = {"7x6c4", "9x7c5"};
+    private static final int GAMES = 3;
+
+    public static void main(String args[]) throws IOException {
+
+        OpeningBook book = args.length > 0 ? OpeningBook.open(new File(args[0])) : null;
+        boolean passed = true;
+        for (String board : BOARDS) {
+            BoardGeometry geometry = BoardGeometry.parse(board);
+            for (Difficulty level : LEVELS) {
+                Connect4Bot bot = new Connect4Bot(geometry);
+                if (geometry.equals(OpeningBook.GEOMETRY)) {
+                    bot.setOpeningBook(book);
+                }
+                bot.setDifficulty(level);
+                for (int game = 0; game < GAMES; game++) {
+                    bot.clear();
+                    String first = playGame(bot, geometry, game);
+                    bot.clear();
+                    String second = playGame(bot, geometry, game);
+                    boolean same = first.equals(second);
+                    System.out.println(geometry + " " + level.getName() + " game " + game + ": " + first
+                            + (same ? "" : " then " + second + " FAILED"));
+                    passed &= same;
+                }
+                bot.shutdown();
+            }
+        }
+        System.out.println(passed ? "All checks passed" : "FAILED");
+        if (!passed) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Plays a game where the human's moves are random and the bot, second to play, answers them
+     * @param bot bot to play with
+     * @param geometry board of the game
+     * @param seed seed of the human's moves
+     * @return the moves of the game, as columns from 1 in base 36
+     */
+    private static String playGame(Connect4Bot bot, BoardGeometry geometry, long seed) {
+
+        Connect4Model model = new Connect4Model(geometry);
+        Random random = new Random(seed);
+        StringBuilder moves = new StringBuilder();
+        boolean humanTurn = true;
+        do {
+            int col;
+            if (humanTurn) {
+                do {
+                    col = random.nextInt(geometry.getWidth());
+                } while (model.topBall(col) == geometry.getHeight() - 1);
+            }
+            else {
+                col = bot.getNextMove(model.getSnapshot()).getColumn();
+            }
+            model.addBall(col, humanTurn ? Connect4Model.Color.RED : Connect4Model.Color.YELLOW);
+            model.recordBall(col);
+            moves.append(Character.forDigit(col + 1, 36));
+            humanTurn = !humanTurn;
+        } while (!model.checkForWinner());
+        return moves.toString();
+    }
+}
@@ -0,0 +1,157 @@
+package edu.cmu.pocketsphinx.demo;
+
+/**
+ * Size of the board and number of balls in a row needed to win, chosen when a game is created.
+ *
+ * The bot's positions take height + 1 bits per column. Boards needing at most 64 bits are stored
+ * in single longs, larger ones up to MAX_BITS spill into a second long.
+ */
+public final class BoardGeometry {
+
+    //The transposition table keeps moves in 4 bits, one of the values meaning no move
+    public static final int MAX_WIDTH = 15;
+    public static final int MAX_BITS = 128;
+
+    public static final BoardGeometry STANDARD = new BoardGeometry(7, 6, 4);
+
+    private final int mWidth;
+    private final int mHeight;
+    private final int mWinLength;
+
+    private final WinningLines mLines;
+
+    //Random keys of every ball on every bit, and of the player to move, for Zobrist hashing.
+    //The mirror keys are the keys of the ball on the mirrored bit.
+    final long mZobristBalls[][];
+    final long mZobristMirrorBalls[][];
+    final long mZobristPlayer;
+
+    /**
+     * @param width number of columns
+     * @param height number of rows
+     * @param winLength number of balls in a row needed to win
+     * @throws IllegalArgumentException if the bot can't play on such a board
+     */
+    public BoardGeometry(int width, int height, int winLength) {
+
+        if (width < 1 || width > MAX_WIDTH || height < 1 || width * (height + 1) > MAX_BITS) {
+            throw new IllegalArgumentException("Unsupported board size: " + width + "x" + height);
+        }
+        if (winLength < 2 || winLength > Math.max(width, height)) {
+            throw new IllegalArgumentException("Unsupported win length: " + winLength);
+        }
+        mWidth = width;
+        mHeight = height;
+        mWinLength = winLength;
+        mLines = new WinningLines(this);
+
+        int bits = width * getColumnBits();
+        mZobristBalls = new long[2][bits];
+        mZobristMirrorBalls = new long[2][bits];
+        long seed = 0x436f6e6e65637434L;
+        for (int player = 0; player < 2; player++) {
+            for (int i = 0; i < bits; i++) {
+                seed += 0x9E3779B97F4A7C15L;
+                mZobristBalls[player][i] = mix(seed);
+            }
+        }
+        seed += 0x9E3779B97F4A7C15L;
+        mZobristPlayer = mix(seed);
+
+        for (int player = 0; player < 2; player++) {
+            for (int i = 0; i < bits; i++) {
+                int col = i / getColumnBits();
+                int mirrored = (width - 1 - col) * getColumnBits() + i % getColumnBits();
+                mZobristMirrorBalls[player][i] = mZobristBalls[player][mirrored];
+            }
+        }
+    }
+
+    /**
+     * @param name board written as width x height c win length, for example 7x6c4
+     * @return the geometry of the board
+     * @throws IllegalArgumentException if the name isn't a board the bot can play on
+     */
+    public static BoardGeometry parse(String name) {
+
+        String parts[] = name.split("[xc]");
+        if (parts.length != 3) {
+            throw new IllegalArgumentException("Not a board: " + name);
+        }
+        try {
+            return new BoardGeometry(Integer.parseInt(parts[0]), Integer.parseInt(parts[1]),
+                    Integer.parseInt(parts[2]));
+        }
+        catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Not a board: " + name);
+        }
+    }
+
+    /**
+     * SplitMix64 finalizer, spreads a counter into well mixed random bits
+     */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    public int getWidth() {
+        return mWidth;
+    }
+
+    public int getHeight() {
+        return mHeight;
+    }
+
+    public int getWinLength() {
+        return mWinLength;
+    }
+
+    /**
+     * @return the number of cells of the board
+     */
+    public int getSize() {
+        return mWidth * mHeight;
+    }
+
+    /**
+     * @return the bits used by a column of a position, including the empty guard bit on top
+     */
+    int getColumnBits() {
+        return mHeight + 1;
+    }
+
+    /**
+     * @return true if a position needs more than one long per bitboard
+     */
+    boolean isWide() {
+        return mWidth * getColumnBits() > 64;
+    }
+
+    /**
+     * @return the windows a player can win in
+     */
+    WinningLines getLines() {
+        return mLines;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (!(other instanceof BoardGeometry)) {
+            return false;
+        }
+        BoardGeometry geometry = (BoardGeometry) other;
+        return mWidth == geometry.mWidth && mHeight == geometry.mHeight && mWinLength == geometry.mWinLength;
+    }
+
+    @Override
+    public int hashCode() {
+        return (mWidth * 31 + mHeight) * 31 + mWinLength;
+    }
+
+    @Override
+    public String toString() {
+        return mWidth + "x" + mHeight + " connect " + mWinLength;
+    }
+}
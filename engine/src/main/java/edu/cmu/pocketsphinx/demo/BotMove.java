@@ -0,0 +1,36 @@
+package edu.cmu.pocketsphinx.demo;
+
+/**
+ * A move of the bot with the version of the board it was found for. It is only to be played if
+ * the model still has that version, otherwise the board changed while the bot was thinking.
+ */
+public final class BotMove {
+
+    private final long mVersion;
+    private final int mColumn;
+
+    /**
+     * @param version version of the snapshot the move was found for
+     * @param column column of the move from 0
+     */
+    BotMove(long version, int column) {
+        mVersion = version;
+        mColumn = column;
+    }
+
+    public long getVersion() {
+        return mVersion;
+    }
+
+    public int getColumn() {
+        return mColumn;
+    }
+
+    /**
+     * @param model model the move is to be played on
+     * @return true if the model changed since the move was asked for, the move must then be dropped
+     */
+    public boolean isStale(Connect4Model model) {
+        return model.getVersion() != mVersion;
+    }
+}
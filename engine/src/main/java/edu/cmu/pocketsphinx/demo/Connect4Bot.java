@@ -0,0 +1,857 @@
+package edu.cmu.pocketsphinx.demo;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * This is the bot class for connect 4. It finds the next best move given a board.
+ *
+ * Please excuse any bad style or code in this class. I wrote this class in C++ a while ago and
+ * didn't want to play around with the code too much as it might affect the logic. I tried to make it
+ * more presentable however.
+ */
+public class Connect4Bot {
+
+    //These are swapped as the bot assumes it is player 1, but it is player 2 in the game
+    private static final Connect4Model.Color RED = Connect4Model.Color.YELLOW;
+    private static final Connect4Model.Color YELLOW = Connect4Model.Color.RED;
+
+    private static final int BOT = Connect4Position.playerOf(RED);
+    private static final int HUMAN = Connect4Position.playerOf(YELLOW);
+
+    //Various tuning factors
+    private static final int RATING_FOUR_IN_A_ROW = 1;
+    private static final int RATING_FOUR_FACTOR = 1000;
+    public static final float RATING_THREE_IN_A_ROW = 0.1f;
+    public static final float RATING_TWO_IN_A_ROW = 0.015f;
+    static final int VERY_NEGATIVE = -1000000;
+
+    //The search works on integer scores, a rating of 1 is SCORE_SCALE
+    private static final int SCORE_SCALE = 1000;
+    static final int SCORE_THREE_IN_A_ROW = Math.round(RATING_THREE_IN_A_ROW * SCORE_SCALE);
+    static final int SCORE_TWO_IN_A_ROW = Math.round(RATING_TWO_IN_A_ROW * SCORE_SCALE);
+
+    //A win is worth less the further away it is, so the search prefers quick wins and slow losses
+    static final int SCORE_WIN = RATING_FOUR_FACTOR * RATING_FOUR_IN_A_ROW * SCORE_SCALE;
+    static final int SCORE_WIN_MIN = SCORE_WIN - BoardGeometry.MAX_BITS; //More plies than any board has cells
+    static final int SCORE_INFINITY = SCORE_WIN + 1;
+
+    //These are constants affecting how far ahead to look when calculating a move.
+    //A deeper iteration isn't started after the move time / DEPTH_FACTOR, one already started is
+    //aborted at the move time so a move never takes much longer than that. The node budget of a
+    //difficulty is shared out the same way.
+    private static final int MIN_DEPTH = 3;
+    private static final int DEPTH_FACTOR = 6;
+    public static final int MAX_TIME = 1000;
+
+    //Pondering stops by itself after this long if the human still hasn't moved
+    private static final int MAX_PONDER_TIME = 30 * MAX_TIME;
+
+    public static final int DEFAULT_TABLE_MEMORY = 4 * 1024 * 1024;
+
+    //Positions with at most this many empty cells are solved exactly instead of searched
+    public static final int DEFAULT_SOLVER_EMPTY_CELLS = 24;
+
+    public static final String NAME = "Bot";
+
+    private final BoardGeometry mGeometry;
+    private final int mWidth;
+    private final int mCenterOrder[];
+
+    private final TranspositionTable mTable;
+
+    //The first worker searches on the calling thread, the others are helpers run by the executor
+    private final SearchWorker mWorkers[];
+    private final Future<?> mHelpers[];
+    private ExecutorService mExecutor;
+    private volatile boolean mStopped;
+    //Request being answered, the search stops as soon as it is cancelled
+    private volatile SearchHandle mHandle;
+    private final TimeManager mTimeManager = new TimeManager();
+
+    private volatile OpeningBook mBook;
+    private volatile EngineLogger mLogger = EngineLogger.NONE;
+    private volatile Difficulty mDifficulty = Difficulty.TIMED;
+
+    //Background search on the human's turn
+    private Future<?> mPondering;
+    private boolean mPredictingReply;
+    private long mPonderHash;
+    private long mPonderStart;
+    //The human's move pondered on, -1 to guess it
+    private int mPonderReply;
+    private final Runnable mPonderTask = new Runnable() {
+        @Override
+        public void run() {
+            CpuScheduler scheduler = mScheduler;
+            if (scheduler == null) {
+                ponder(mPonderPosition, mPonderReply);
+                return;
+            }
+            scheduler.applyPriority();
+            scheduler.onSearchStarted();
+            long start = System.currentTimeMillis();
+            long nodes = ponder(mPonderPosition, mPonderReply);
+            scheduler.onSearchDone(nodes, System.currentTimeMillis() - start);
+        }
+    };
+
+    //Positions are reused for every move, nothing is allocated once the bot is created
+    private final Connect4Position mPosition;
+    private final Connect4Position mPonderPosition;
+
+    //Only on the board the solver plays on, null otherwise
+    private final Connect4Solver mSolver;
+
+    //Deepest completed result of the current move
+    private int mDepth;
+    private int mBestMove;
+    private int mBestScore;
+    private final float mRatings[];
+
+    //Known result of the last move, see getDistanceToWin
+    private boolean mSolved;
+    private int mDistanceToWin;
+
+    //How the last move was found, filled again for every move
+    private final SearchStats mStats;
+    private volatile SearchListener mListener;
+
+    //Shares the CPU with the speech recognizer, or null to search at full speed
+    private volatile CpuScheduler mScheduler;
+
+    public Connect4Bot() {
+        this(DEFAULT_TABLE_MEMORY);
+    }
+
+    /**
+     * @param tableMemory memory budget in bytes of the transposition table. The table is kept for
+     *                    the whole life of the bot so positions searched for a move are reused for
+     *                    the next ones.
+     */
+    public Connect4Bot(int tableMemory) {
+        this(tableMemory, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param tableMemory memory budget in bytes of the transposition table
+     * @param threads number of threads searching every move, at least 1
+     */
+    public Connect4Bot(int tableMemory, int threads) {
+        this(tableMemory, threads, MoveOrderer.ALL_SOURCES);
+    }
+
+    /**
+     * @param tableMemory memory budget in bytes of the transposition table
+     * @param threads number of threads searching every move, at least 1
+     * @param orderingSources sources used to order the moves, see MoveOrderer
+     */
+    public Connect4Bot(int tableMemory, int threads, int orderingSources) {
+        this(BoardGeometry.STANDARD, tableMemory, threads, orderingSources);
+    }
+
+    /**
+     * @param geometry board the bot plays on
+     */
+    public Connect4Bot(BoardGeometry geometry) {
+        this(geometry, DEFAULT_TABLE_MEMORY, Runtime.getRuntime().availableProcessors(), MoveOrderer.ALL_SOURCES);
+    }
+
+    /**
+     * @param geometry board the bot plays on. The opening book and the solver are only used on the
+     *                 standard board.
+     * @param tableMemory memory budget in bytes of the transposition table
+     * @param threads number of threads searching every move, at least 1
+     * @param orderingSources sources used to order the moves, see MoveOrderer
+     */
+    public Connect4Bot(BoardGeometry geometry, int tableMemory, int threads, int orderingSources) {
+        mGeometry = geometry;
+        mWidth = geometry.getWidth();
+        mCenterOrder = MoveOrderer.centerOrder(mWidth);
+        mRatings = new float[mWidth];
+        mStats = new SearchStats(geometry.getSize());
+        mPosition = new Connect4Position(geometry);
+        mPonderPosition = new Connect4Position(geometry);
+        mSolver = Connect4Solver.supports(geometry) ? new Connect4Solver() : null;
+
+        mTable = new TranspositionTable(tableMemory);
+        mWorkers = new SearchWorker[Math.max(threads, 1)];
+        for (int i = 0; i < mWorkers.length; i++) {
+            mWorkers[i] = new SearchWorker(this, geometry, mTable, orderingSources);
+        }
+        mHelpers = new Future<?>[mWorkers.length - 1];
+    }
+
+    /**
+     * @return the board the bot plays on
+     */
+    public BoardGeometry getGeometry() {
+        return mGeometry;
+    }
+
+    /**
+     * @param book book answering the first moves of a game without searching, or null
+     */
+    public void setOpeningBook(OpeningBook book) {
+        mBook = book;
+    }
+
+    /**
+     * @param logger receives the bot's messages about its moves, EngineLogger.NONE to drop them
+     */
+    public void setLogger(EngineLogger logger) {
+        mLogger = logger;
+    }
+
+    /**
+     * @param difficulty how strongly the bot plays from its next move on, Difficulty.TIMED by
+     *                   default. Call clear() as well for a new game to replay the same way.
+     */
+    public void setDifficulty(Difficulty difficulty) {
+        mDifficulty = difficulty;
+    }
+
+    public Difficulty getDifficulty() {
+        return mDifficulty;
+    }
+
+    /**
+     * Forgets everything learnt from earlier moves, so from a new game a reproducible difficulty
+     * plays the same moves again
+     */
+    public void clear() {
+        stopPondering();
+        mTable.clear();
+        if (mSolver != null) {
+            mSolver.clear();
+        }
+        for (SearchWorker worker : mWorkers) {
+            worker.getOrderer().clear();
+        }
+    }
+
+    /**
+     * @return true if the result of the game after the bot's last move is known for sure, either
+     * solved or found by the search
+     */
+    public synchronized boolean isSolved() {
+        return mSolved;
+    }
+
+    /**
+     * @return the number of balls left to play until a player wins if both play perfectly, counted
+     * from the position the bot's last move was played in. Positive if the bot wins, negative if it
+     * loses and 0 for a draw. Only meaningful if isSolved().
+     */
+    public synchronized int getDistanceToWin() {
+        return mDistanceToWin;
+    }
+
+    /**
+     * @return the number of positions all the threads searched for the last move, or the solver
+     * solved. 0 if it came from the opening book.
+     */
+    public long getNodes() {
+        return mStats.getNodes();
+    }
+
+    /**
+     * @return a copy of the stats of the last move. Only to be called by the thread asking for the
+     * moves, a SearchListener is told about every move.
+     */
+    public SearchStats getSearchStats() {
+        return new SearchStats(mStats);
+    }
+
+    /**
+     * @param listener told about how every move was found, or null
+     */
+    public void setSearchListener(SearchListener listener) {
+        mListener = listener;
+    }
+
+    /**
+     * @param scheduler sets how much CPU the search uses, or null for all of it
+     */
+    public void setScheduler(CpuScheduler scheduler) {
+        mScheduler = scheduler;
+    }
+
+    /**
+     * @return the number of threads searching every move
+     */
+    public int getThreadCount() {
+        return mWorkers.length;
+    }
+
+    /**
+     * Gets the next move as judged by the bot.
+     * The helper threads search the same position at staggered depths and share their results
+     * through the transposition table, the deepest iteration any thread completed gives the move.
+     * @param board board being played on
+     * @return the column number of the move from 0 - the width of the board
+     */
+    public int getNextMove(Connect4Model.Color board[][]) {
+
+        //The board is converted once, the search only works on the bitboards
+        mPosition.setBoard(board, RED);
+        return findMove(mPosition);
+    }
+
+    /**
+     * Gets the next move as judged by the bot, for a snapshot taken on the thread playing the game
+     * @param snapshot board being played on
+     * @return the move, with the version of the snapshot so it can be dropped if the board changed
+     * in the meantime
+     */
+    public BotMove getNextMove(PositionSnapshot snapshot) {
+        return getNextMove(snapshot, null);
+    }
+
+    /**
+     * Gets the next move as judged by the bot, unless the request is cancelled first
+     * @param snapshot board being played on
+     * @param handle request to check while searching, or null
+     * @return the move, meaningless if the request was cancelled
+     */
+    public BotMove getNextMove(PositionSnapshot snapshot, SearchHandle handle) {
+
+        mHandle = handle;
+        if (handle != null) {
+            handle.setScheduler(mScheduler);
+        }
+        try {
+            mPosition.setSnapshot(snapshot, RED);
+            return new BotMove(snapshot.getVersion(), findMove(mPosition));
+        }
+        finally {
+            mHandle = null;
+        }
+    }
+
+    /**
+     * @param position position the bot is to move in
+     * @return the column number of the move
+     */
+    private int findMove(Connect4Position position) {
+
+        EngineLogger logger = mLogger;
+        Difficulty difficulty = mDifficulty;
+        long moveTime = getMoveTime(difficulty);
+        //Reproducible levels search alone, the helpers' timing would change the result
+        CpuScheduler scheduler = mScheduler;
+        int threads = difficulty.isReproducible() ? 1
+                : scheduler != null ? scheduler.getSearchThreads(mWorkers.length) : mWorkers.length;
+        long nodeBudget = difficulty.getNodeBudget() != Difficulty.NO_LIMIT
+                ? difficulty.getNodeBudget() : Long.MAX_VALUE;
+        int maxDepth = difficulty.getMaxDepth() != Difficulty.NO_LIMIT
+                ? Math.min(difficulty.getMaxDepth(), position.getSpacesLeft()) : position.getSpacesLeft();
+
+        boolean ponderHit = stopPondering(position);
+        if (ponderHit) {
+            //The time spent pondering counts as time spent on the move
+            long pondered = System.currentTimeMillis() - mPonderStart;
+            mTimeManager.start(Math.max(moveTime/DEPTH_FACTOR - pondered, 0), moveTime);
+            if (logger.isEnabled())
+                logger.debug("Connect4Bot", "Ponder hit, pondered to depth " + mDepth + " in " + pondered + " ms");
+            mStats.start(SearchStats.SOURCE_SEARCH, threads, true);
+        }
+        else {
+            //Without a time cap only the depth and the node budget stop the search
+            long softLimit = difficulty.isReproducible() ? moveTime : moveTime/DEPTH_FACTOR;
+            mTimeManager.start(softLimit, moveTime);
+            mTable.newSearch();
+            clearResult();
+        }
+
+        OpeningBook book = difficulty.usesBook() ? mBook : null;
+        if (book != null) {
+            int move = book.getMove(position);
+            if (move != -1 && position.canPlay(move)) {
+                mStats.start(SearchStats.SOURCE_BOOK, 1, false);
+                return onMoveFound(move);
+            }
+        }
+
+        //Near the end of the game a perfect move is quicker to find than a heuristic one
+        if (mSolver != null && position.getSpacesLeft() > 0 && position.getSpacesLeft() <= difficulty.getSolverEmptyCells()) {
+            long solverNodes = mSolver.getNodes();
+            int move = mSolver.getBestMove(position, mHandle);
+            if (move == -1) {
+                //Cancelled, nobody waits for the move
+                return move;
+            }
+            int distance = Connect4Solver.getDistanceToWin(mSolver.getScore(), position.getMoves());
+            synchronized (this) {
+                mSolved = true;
+                mDistanceToWin = distance;
+            }
+            if (logger.isEnabled())
+                logger.debug("Connect4Bot", "Solved position, distance to win: " + distance);
+            mStats.start(SearchStats.SOURCE_SOLVER, 1, false);
+            mStats.addNodes(mSolver.getNodes() - solverNodes);
+            return onMoveFound(move);
+        }
+
+        mStopped = false;
+        if (!ponderHit) {
+            mStats.start(SearchStats.SOURCE_SEARCH, threads, false);
+        }
+        if (scheduler != null) {
+            scheduler.applyPriority();
+            scheduler.onSearchStarted();
+        }
+
+        //After a ponder hit the main worker goes on from where pondering stopped
+        SearchWorker main = mWorkers[0];
+        int startDepth = ponderHit ? mDepth + 1 : Math.min(MIN_DEPTH, maxDepth);
+        if (ponderHit)
+            main.resume();
+        else
+            main.prepare(position, startDepth);
+        main.setNodeLimit(nodeBudget);
+
+        //Half of the helpers start one ply deeper so the threads don't all search the same depth
+        for (int i = 1; i < threads; i++) {
+            mWorkers[i].prepare(position, startDepth + i % 2);
+            mWorkers[i].setNodeLimit(Long.MAX_VALUE);
+        }
+        for (int i = 1; i < threads; i++) {
+            mHelpers[i - 1] = getExecutor().submit(mWorkers[i]);
+        }
+
+        for (int depth = startDepth; depth <= maxDepth && !isResultProven(); depth++) {
+            if (!mTimeManager.canStartIteration() || main.getNodes() >= nodeBudget / DEPTH_FACTOR) {
+                break;
+            }
+            //Aborted by the deadline, the node budget or a helper proving the result, the last
+            //completed iteration gives the move
+            if (!main.search(depth)) {
+                mStats.setDeadlineAborted(mTimeManager.isTimeUp() || main.getNodes() >= nodeBudget);
+                break;
+            }
+            mStats.addIteration(mTimeManager.getElapsedMillis());
+            //A win or loss found at this depth won't change any deeper
+            onIterationDone(main, depth);
+        }
+
+        stop();
+        for (int i = 0; i < threads - 1; i++) {
+            waitFor(mHelpers[i]);
+            mHelpers[i] = null;
+        }
+
+        for (int i = 0; i < threads; i++) {
+            mStats.addWorker(mWorkers[i]);
+        }
+        if (scheduler != null) {
+            //Pondering reported its own nodes, after a hit only the ones searched since are added
+            scheduler.onSearchDone(mStats.getNodes(), mTimeManager.getElapsedMillis());
+        }
+
+        int move;
+        synchronized (this) {
+            mStats.setDepth(mDepth);
+            if (isWinScore(mBestScore)) {
+                mSolved = true;
+                //Win scores are SCORE_WIN less the plies to the winning ball
+                mDistanceToWin = mBestScore > 0 ? SCORE_WIN - mBestScore : -(SCORE_WIN + mBestScore);
+            }
+
+            if (logger.isEnabled()) {
+                logger.debug("Connect4Bot", "Ratings:");
+                for (int k = 0; k < mWidth; k++) {
+                    logger.debug("Connect4Bot", Float.toString(mRatings[k]));
+                }
+            }
+
+            move = mBestMove;
+            if (move == -1) {
+                //Not even the first iteration finished in time, any move beats none
+                for (int col : mCenterOrder) {
+                    if (position.canPlay(col)) {
+                        move = col;
+                        break;
+                    }
+                }
+            }
+        }
+        return onMoveFound(move);
+    }
+
+    /**
+     * @param difficulty difficulty the bot plays at
+     * @return the time the bot spends at most on a move
+     */
+    private static long getMoveTime(Difficulty difficulty) {
+        return difficulty.getTimeCapMillis() != Difficulty.NO_LIMIT
+                ? difficulty.getTimeCapMillis() : TimeManager.NO_LIMIT;
+    }
+
+    /**
+     * Completes the stats of a move and passes them on
+     * @param move move the bot found
+     * @return the move
+     */
+    private int onMoveFound(int move) {
+
+        mStats.setElapsedMillis(mTimeManager.getElapsedMillis());
+        if (isCancelled()) {
+            return move;
+        }
+        EngineLogger logger = mLogger;
+        if (logger.isEnabled()) {
+            logger.debug("Connect4Bot", "Found move " + move + " with " + mStats);
+        }
+        SearchListener listener = mListener;
+        if (listener != null) {
+            listener.onSearchDone(mStats);
+        }
+        return move;
+    }
+
+    /**
+     * Stops the helper threads. The bot can still be used afterwards, they are started again when
+     * needed.
+     */
+    public void shutdown() {
+        stopPondering();
+        synchronized (this) {
+            if (mExecutor != null) {
+                mExecutor.shutdownNow();
+                mExecutor = null;
+            }
+        }
+    }
+
+    /**
+     * Starts searching in the background while the human thinks about their move. The bot guesses
+     * the human's reply with a short search, then searches its answer to it as if it was asked for
+     * its move. If the human plays the guessed reply the search goes on from there and the time
+     * already spent counts towards the move, otherwise the table still holds most of what the new
+     * search needs. Pondering stops when the bot's next move is asked for, or after MAX_PONDER_TIME.
+     * Reproducible difficulties don't ponder, how far pondering got would change their moves.
+     * @param board board being played on, the human must be the one to move
+     */
+    public void startPondering(Connect4Model.Color board[][]) {
+
+        //The pondering thread must be done with the position before it is changed
+        stopPondering();
+        mPonderPosition.setBoard(board, YELLOW);
+        startPondering(mPonderPosition, -1);
+    }
+
+    /**
+     * Starts searching in the background while the human thinks about their move, see
+     * startPondering(Connect4Model.Color[][])
+     * @param snapshot board being played on, the human must be the one to move
+     */
+    public void startPondering(PositionSnapshot snapshot) {
+        startPondering(snapshot, -1);
+    }
+
+    /**
+     * Starts searching in the background the position after a move the human is about to play,
+     * for example the column under their finger. If they play it the bot's move is a ponder hit,
+     * otherwise the search is dropped when the move is asked for.
+     * @param snapshot board being played on, the human must be the one to move
+     * @param humanMove column the human is expected to play, -1 to guess it
+     */
+    public void startPondering(PositionSnapshot snapshot, int humanMove) {
+
+        stopPondering();
+        mPonderPosition.setSnapshot(snapshot, YELLOW);
+        startPondering(mPonderPosition, humanMove);
+    }
+
+    /**
+     * @param position position the human is to move in, pondering must be stopped
+     * @param reply column the human is expected to play, -1 to guess it
+     */
+    private void startPondering(Connect4Position position, int reply) {
+
+        if (mDifficulty.isReproducible() || position.hasWon(BOT) || position.getSpacesLeft() < 2) {
+            return;
+        }
+        if (reply == -1 ? !needsSearchAfterReply(position) : !position.canPlay(reply)) {
+            return;
+        }
+
+        mStopped = false;
+        mTimeManager.start(TimeManager.NO_LIMIT, MAX_PONDER_TIME);
+        mTable.newSearch();
+
+        synchronized (this) {
+            clearResult();
+            mPonderHash = 0;
+            mPredictingReply = true;
+            mPonderReply = reply;
+            mPondering = getExecutor().submit(mPonderTask);
+        }
+    }
+
+    /**
+     * Stops pondering. The bot can always be asked for its move, this is only needed to free the
+     * CPU right away.
+     */
+    public void stopPondering() {
+        stopPondering(null);
+    }
+
+    /**
+     * Stops pondering and waits for the pondering thread to be done
+     * @param position position the bot is now asked to move in, or null
+     * @return true if pondering searched that position and completed at least one iteration
+     */
+    private boolean stopPondering(Connect4Position position) {
+
+        Future<?> pondering;
+        synchronized (this) {
+            pondering = mPondering;
+            mPondering = null;
+        }
+        if (pondering == null) {
+            return false;
+        }
+
+        stop();
+        waitFor(pondering);
+
+        synchronized (this) {
+            return position != null && !mPredictingReply && mBestMove != -1
+                    && mPonderHash == position.getHash();
+        }
+    }
+
+    /**
+     * Runs on the pondering thread
+     * @param position position the human is to move in
+     * @param reply column the human is expected to play, -1 to guess it
+     * @return the number of positions searched
+     */
+    private long ponder(Connect4Position position, int reply) {
+
+        SearchWorker worker = mWorkers[0];
+        worker.setNodeLimit(Long.MAX_VALUE);
+        long guessNodes = 0;
+        if (reply == -1) {
+            //The guess is the human's best move at a shallow depth
+            worker.prepare(position, MIN_DEPTH);
+            long moveTime = getMoveTime(mDifficulty);
+            long start = System.currentTimeMillis();
+            for (int depth = MIN_DEPTH; depth <= position.getSpacesLeft(); depth++) {
+                if (System.currentTimeMillis() - start >= moveTime/DEPTH_FACTOR || !worker.search(depth)) {
+                    break;
+                }
+            }
+            reply = worker.getBestMove();
+            guessNodes = worker.getNodes();
+        }
+        if (reply == -1 || mStopped) {
+            return guessNodes;
+        }
+        position.play(reply);
+        if (position.lastMoveWon() || !needsSearch(position)) {
+            return guessNodes;
+        }
+
+        synchronized (this) {
+            mPonderHash = position.getHash();
+            mPonderStart = System.currentTimeMillis();
+            mPredictingReply = false;
+        }
+        worker.prepare(position, MIN_DEPTH);
+        worker.run();
+        return guessNodes + worker.getNodes();
+    }
+
+    /**
+     * @param position position the bot is to move in
+     * @return true if the move isn't in the book and the position is too big for the solver
+     */
+    private boolean needsSearch(Connect4Position position) {
+
+        Difficulty difficulty = mDifficulty;
+        if (mSolver != null && position.getSpacesLeft() <= difficulty.getSolverEmptyCells()) {
+            return false;
+        }
+        OpeningBook book = difficulty.usesBook() ? mBook : null;
+        return book == null || book.getMove(position) == -1;
+    }
+
+    /**
+     * @param position position the human is to move in
+     * @return true if the bot would have to search after at least one of the human's replies
+     */
+    private boolean needsSearchAfterReply(Connect4Position position) {
+
+        for (int col = 0; col < mWidth; col++) {
+            if (position.canPlay(col)) {
+                position.play(col);
+                boolean needed = !position.lastMoveWon() && needsSearch(position);
+                position.undo(col);
+                if (needed) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private synchronized void clearResult() {
+        mDepth = 0;
+        mBestMove = -1;
+        mBestScore = 0;
+        for (int i = 0; i < mWidth; i++)
+            mRatings[i] = VERY_NEGATIVE;
+        mSolved = false;
+        mDistanceToWin = 0;
+    }
+
+    private void waitFor(Future<?> future) {
+        try {
+            future.get();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        catch (ExecutionException e) {
+            mLogger.error("Connect4Bot", "Background search failed", e.getCause());
+        }
+    }
+
+    private synchronized ExecutorService getExecutor() {
+
+        if (mExecutor == null) {
+            //Helpers and pondering never run at the same time
+            mExecutor = Executors.newFixedThreadPool(Math.max(mWorkers.length - 1, 1), new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, "Connect4Bot search");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return mExecutor;
+    }
+
+    /**
+     * Gives the calling search thread the scheduler's priority
+     */
+    void applyPriority() {
+        CpuScheduler scheduler = mScheduler;
+        if (scheduler != null) {
+            scheduler.applyPriority();
+        }
+    }
+
+    /**
+     * Called by the workers with the stop check, see CpuScheduler.pace
+     * @param runStart value returned by the last call on the thread, 0 on the first one
+     * @return the value to pass on the next call
+     */
+    long pace(long runStart) {
+        CpuScheduler scheduler = mScheduler;
+        return scheduler != null ? scheduler.pace(runStart, this) : 0;
+    }
+
+    /**
+     * Tells the workers to stop, waking them up if the scheduler paused them
+     */
+    private void stop() {
+        mStopped = true;
+        CpuScheduler scheduler = mScheduler;
+        if (scheduler != null) {
+            scheduler.wake();
+        }
+    }
+
+    /**
+     * @return true once the search has to stop, checked by the workers while searching
+     */
+    boolean isStopped() {
+        return mStopped || mTimeManager.isTimeUp() || isCancelled();
+    }
+
+    private boolean isCancelled() {
+        SearchHandle handle = mHandle;
+        return handle != null && handle.isCancelled();
+    }
+
+    /**
+     * Called by a worker after it completed an iteration. The result is kept if it is deeper than
+     * the one already found, the main worker wins at equal depth as it searched the previous best
+     * move first.
+     * @param worker worker which completed the iteration
+     * @param depth depth of the iteration
+     */
+    synchronized void onIterationDone(SearchWorker worker, int depth) {
+
+        //While guessing the human's reply the results are the human's moves
+        if (mPredictingReply || worker.getBestMove() == -1) {
+            return;
+        }
+        if (depth > mDepth || (depth == mDepth && worker == mWorkers[0])) {
+            mDepth = depth;
+            mBestMove = worker.getBestMove();
+            mBestScore = worker.getBestScore();
+            System.arraycopy(worker.getRatings(), 0, mRatings, 0, mWidth);
+        }
+        if (isWinScore(mBestScore)) {
+            stop();
+        }
+    }
+
+    private synchronized boolean isResultProven() {
+        return mBestMove != -1 && isWinScore(mBestScore);
+    }
+
+    /**
+     * @param score score of a search
+     * @return true if the score is a forced win or loss
+     */
+    static boolean isWinScore(int score) {
+        return Math.abs(score) >= SCORE_WIN_MIN;
+    }
+
+    /**
+     * @param score score of a search
+     * @return the score as a rating
+     */
+    static float toRating(int score) {
+        return score / (float) SCORE_SCALE;
+    }
+
+    /**
+     * Gives a rating for a given board
+     * @param board board being played on
+     * @return
+     */
+    public float rateBoard(Connect4Model.Color board[][])
+    {
+        return rateBoard(Connect4Position.fromBoard(mGeometry, board, RED));
+    }
+
+    /**
+     * Gives a rating for a given position
+     * @param position position being played on
+     * @return
+     */
+    public float rateBoard(Connect4Position position)
+    {
+        if (position.hasWon(BOT)) {
+            return RATING_FOUR_FACTOR * RATING_FOUR_IN_A_ROW;
+        }
+        else if (position.hasWon(HUMAN)) {
+            return -RATING_FOUR_FACTOR * RATING_FOUR_IN_A_ROW;
+        }
+
+        Connect4Evaluator evaluator = new Connect4Evaluator(position.getGeometry());
+        evaluator.reset(position);
+        return evaluator.getScore(BOT) / (float) SCORE_SCALE;
+    }
+}
@@ -0,0 +1,160 @@
+package edu.cmu.pocketsphinx.demo;
+
+import java.util.Arrays;
+
+/**
+ * Keeps the heuristic rating of a position up to date while the bot plays and takes back moves.
+ *
+ * Every window of cells a player can win in keeps a count of the balls of each player in it. A
+ * window holding balls of only one player is worth RATING_THREE_IN_A_ROW to that player when one
+ * ball short of a win and RATING_TWO_IN_A_ROW when two balls short, so on the standard board with
+ * three and two balls. A move only changes the windows through its cell, so the score is updated
+ * with the move and reading it is free. The windows come from WinningLines.
+ */
+public class Connect4Evaluator {
+
+    private final int mWidth;
+    private final int mHeight;
+
+    //The state of a window packs the balls of red in the low bits and the balls of yellow above them
+    private final int mStateIncrements[];
+
+    //Change of the score for red when a player adds a ball to a window in a given state
+    private final int mScoreChanges[][];
+
+    //Windows through every cell, see WinningLines
+    private final int mCellWindowStart[];
+    private final int mCellWindows[];
+
+    //State of every window, and the score of the position for red
+    private final int mStates[];
+    private int mScore;
+
+    public Connect4Evaluator() {
+        this(BoardGeometry.STANDARD);
+    }
+
+    /**
+     * @param geometry board the positions are played on
+     */
+    public Connect4Evaluator(BoardGeometry geometry) {
+
+        WinningLines lines = geometry.getLines();
+        mWidth = geometry.getWidth();
+        mHeight = geometry.getHeight();
+        mCellWindowStart = lines.getCellWindowStart();
+        mCellWindows = lines.getCellWindows();
+        mStates = new int[lines.getWindowCount()];
+
+        //Score of a window by the number of balls of its only player
+        int length = lines.getLength();
+        int windowScores[] = new int[length + 1];
+        windowScores[length - 1] = Connect4Bot.SCORE_THREE_IN_A_ROW;
+        if (length - 2 >= 2) {
+            windowScores[length - 2] = Connect4Bot.SCORE_TWO_IN_A_ROW;
+        }
+
+        int yellowShift = 32 - Integer.numberOfLeadingZeros(length);
+        mStateIncrements = new int[]{1, 1 << yellowShift};
+        mScoreChanges = new int[2][(length + 1) << yellowShift];
+        for (int red = 0; red < length; red++) {
+            for (int yellow = 0; yellow < length; yellow++) {
+                int state = red | (yellow << yellowShift);
+                mScoreChanges[Connect4Position.PLAYER_RED][state] =
+                        windowScore(windowScores, red + 1, yellow) - windowScore(windowScores, red, yellow);
+                mScoreChanges[Connect4Position.PLAYER_YELLOW][state] =
+                        windowScore(windowScores, red, yellow + 1) - windowScore(windowScores, red, yellow);
+            }
+        }
+    }
+
+    /**
+     * @return the number of windows a player can win in
+     */
+    public int getWindowCount() {
+        return mStates.length;
+    }
+
+    /**
+     * @param windowScores score of a window by the number of balls of its only player
+     * @param red balls of red in a window
+     * @param yellow balls of yellow in the window
+     * @return the score of the window for red
+     */
+    private static int windowScore(int windowScores[], int red, int yellow) {
+        if (yellow == 0)
+            return windowScores[red];
+        else if (red == 0)
+            return -windowScores[yellow];
+        return 0;
+    }
+
+    /**
+     * Recounts every window from a position
+     * @param position position being played on
+     */
+    public void reset(Connect4Position position) {
+
+        Arrays.fill(mStates, 0);
+        mScore = 0;
+
+        for (int x = 0; x < mWidth; x++) {
+            for (int y = 0; y < mHeight; y++) {
+                int player = position.getCell(x, y);
+                if (player != Connect4Position.NO_PLAYER) {
+                    add(x, y, player);
+                }
+            }
+        }
+    }
+
+    /**
+     * Updates the windows through a cell after a ball was played in it
+     * @param x column of the ball
+     * @param y row of the ball
+     * @param player player who played the ball
+     */
+    public void add(int x, int y, int player) {
+
+        int changes[] = mScoreChanges[player];
+        int increment = mStateIncrements[player];
+        int states[] = mStates;
+        int windows[] = mCellWindows;
+        int cell = x * mHeight + y;
+        for (int i = mCellWindowStart[cell], end = mCellWindowStart[cell + 1]; i < end; i++) {
+            int w = windows[i];
+            int state = states[w];
+            mScore += changes[state];
+            states[w] = state + increment;
+        }
+    }
+
+    /**
+     * Updates the windows through a cell after its ball was taken back
+     * @param x column of the ball
+     * @param y row of the ball
+     * @param player player who had played the ball
+     */
+    public void remove(int x, int y, int player) {
+
+        int changes[] = mScoreChanges[player];
+        int increment = mStateIncrements[player];
+        int states[] = mStates;
+        int windows[] = mCellWindows;
+        int cell = x * mHeight + y;
+        for (int i = mCellWindowStart[cell], end = mCellWindowStart[cell + 1]; i < end; i++) {
+            int w = windows[i];
+            int state = states[w] - increment;
+            mScore -= changes[state];
+            states[w] = state;
+        }
+    }
+
+    /**
+     * @param player player index
+     * @return the score of the position from the point of view of the player
+     */
+    public int getScore(int player) {
+        return player == Connect4Position.PLAYER_RED ? mScore : -mScore;
+    }
+}
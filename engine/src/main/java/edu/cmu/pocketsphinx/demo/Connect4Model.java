@@ -1,7 +1,5 @@
 package edu.cmu.pocketsphinx.demo;
 
-import android.util.Log;
-
 /**
  * This is the model of the game, containing all the information necessary for the view and the controller.
  */
@@ -11,15 +9,19 @@ public class Connect4Model {
     public final static boolean PLAYER_1 = false;
     public final static boolean PLAYER_2 = true;
 
-    public static final int MOVES_TO_WIN = 4;
-
-    public static final int BOARD_WIDTH = 7;
-    public static final int BOARD_HEIGHT = 6;
-
     private static final String DEFAULT_PLAYER_1_NAME = "Player 1";
     private static final String DEFAULT_PLAYER_2_NAME = "Player 2";
 
+    private BoardGeometry mGeometry;
+    private int mWidth;
+    private int mHeight;
     private Color mBoard[][];
+    //Balls in every column and on the whole board, so moves never scan the board
+    private int mHeights[];
+    private int mBallCount;
+    //Grows with every change of the board, the snapshot is kept until the next one
+    private long mVersion;
+    private PositionSnapshot mSnapshot;
     private WinningMove mWinningMove = null;
     private boolean mIsGameOver = false;
 
@@ -28,7 +30,7 @@ public class Connect4Model {
     private String mPlayer1Name;
     private String mPlayer2Name;
 
-    private int[] ballRecord = new int[BOARD_WIDTH*BOARD_HEIGHT+10];
+    private int[] ballRecord;
     private int ballNumber;
 
     private Point mLastPlacedBall = null;
@@ -66,13 +68,15 @@ public class Connect4Model {
     }
 
     public Connect4Model() {
+        this(BoardGeometry.STANDARD);
+    }
 
-        mBoard = new Color[BOARD_WIDTH][BOARD_HEIGHT];
-        for (int i = 0; i < BOARD_WIDTH; i++) {
-            for (int j = 0; j < BOARD_HEIGHT; j++) {
-                mBoard[i][j] = Color.EMPTY;
-            }
-        }
+    /**
+     * @param geometry size of the board and number of balls in a row needed to win
+     */
+    public Connect4Model(BoardGeometry geometry) {
+
+        setupBoard(geometry);
 
         mPlayerTurn = PLAYER_1;
         mPlayer1Name = DEFAULT_PLAYER_1_NAME;
@@ -82,6 +86,38 @@ public class Connect4Model {
         enableButton();
     }
 
+    /**
+     * Creates an empty board
+     * @param geometry size of the board and number of balls in a row needed to win
+     */
+    private void setupBoard(BoardGeometry geometry) {
+
+        mGeometry = geometry;
+        mWidth = geometry.getWidth();
+        mHeight = geometry.getHeight();
+        mBoard = new Color[mWidth][mHeight];
+        for (int i = 0; i < mWidth; i++) {
+            for (int j = 0; j < mHeight; j++) {
+                mBoard[i][j] = Color.EMPTY;
+            }
+        }
+        mHeights = new int[mWidth];
+        mBallCount = 0;
+        ballRecord = new int[mWidth*mHeight+10];
+    }
+
+    public BoardGeometry getGeometry() {
+        return mGeometry;
+    }
+
+    public int getWidth() {
+        return mWidth;
+    }
+
+    public int getHeight() {
+        return mHeight;
+    }
+
     public Point getLastPlacedBall() {
         return mLastPlacedBall;
     }
@@ -102,6 +138,25 @@ public class Connect4Model {
         return mBoard;
     }
 
+    /**
+     * @return the version of the board, it changes whenever a ball is added or removed or the
+     * board is reset
+     */
+    public long getVersion() {
+        return mVersion;
+    }
+
+    /**
+     * Gives a copy of the board which can be handed to another thread, unlike getBoard()
+     * @return an immutable snapshot of the current board, the same one until the board changes
+     */
+    public PositionSnapshot getSnapshot() {
+        if (mSnapshot == null || mSnapshot.getVersion() != mVersion) {
+            mSnapshot = new PositionSnapshot(mVersion, mGeometry, mBoard);
+        }
+        return mSnapshot;
+    }
+
     public WinningMove getWinningMove() {
         return mWinningMove;
     }
@@ -140,21 +195,23 @@ public class Connect4Model {
 
     /**
      * Adds the ball to next available space in the column
-     * @param col column numb r, goes from 0 - BOARD_WIDTH-1
+     * @param col column numb r, goes from 0 - getWidth()-1
      * @param color color of the ball
      * @return the row it was placed in
      */
     public int addBall(int col, Color color)//first column is 0
     {
-        for (int i = 0; i < BOARD_HEIGHT; i++) {
-            if (mBoard[col][i] == Color.EMPTY) {
-                mBoard[col][i] = color;
-                mLastPlacedBall = new Point();
-                mLastPlacedBall.set(col, i);
-                return i;
-            }
+        int row = mHeights[col];
+        if (row == mHeight) {
+            return -1; //Error
         }
-        return -1; //Error
+        mBoard[col][row] = color;
+        mHeights[col] = row + 1;
+        mBallCount++;
+        mVersion++;
+        mLastPlacedBall = new Point();
+        mLastPlacedBall.set(col, row);
+        return row;
     }
 
     /**
@@ -190,7 +247,11 @@ public class Connect4Model {
      */
     public void removeTopBall(int col){
 
-        mBoard[col][ topBall(col)] = Color.EMPTY;
+        int row = topBall(col);
+        mBoard[col][row] = Color.EMPTY;
+        mHeights[col] = row;
+        mBallCount--;
+        mVersion++;
     }
 
     /**
@@ -200,12 +261,7 @@ public class Connect4Model {
      */
     public int topBall(int col){
 
-        for (int i = BOARD_HEIGHT-1; i >=0 ; i--) {
-            if (mBoard[col][i] != Color.EMPTY) {
-                return i;
-            }
-        }
-        return -1;
+        return mHeights[col] - 1;
     }
 
     /**
@@ -222,141 +278,43 @@ public class Connect4Model {
      * Checks the board to see if there's a winner. i.e 4 balls placed in a row
      * It then stores the boolean which can be accessed with hasWinner()
      * and the winning move with getWinningMove()
+     * Only the last placed ball can have completed a row, so only the windows through it are
+     * checked. It is the first window of the board with a row as there was none before.
      * @return whether there is a winner
      */
     public boolean checkForWinner()
     {
-        int count;
-        Color precolor;
-
         mWinningMove = new WinningMove();
 
         /*
-        Checks in all possible 4 directions, horizontally, vertically, diagonally right, diagonally left
+        Checks every window through the last ball, horizontally, vertically, diagonally right, diagonally left.
+        WinningLines lists them in the order the whole board used to be scanned in, so the start and end
+        points are the ones that scan found.
         */
-
-        //Check horizontally
-        precolor = Color.EMPTY; count = 0;
-        for (int i = 0; i < BOARD_HEIGHT; i++)    {
-            for (int j = 0; j < BOARD_WIDTH; j++)    {
-                if (mBoard[j][i] == precolor && mBoard[j][i] != Color.EMPTY) {
-                    count++;
-                    if (count >= MOVES_TO_WIN-1) {
-                        setupWinningMove(j, i, precolor);
-                        return true;
-                    }
-                }
-                else {
-                    count = 0;
-                    mWinningMove.startPos.set(j, i);
-                }
-                precolor = mBoard[j][i];
-            }
-            precolor = Color.EMPTY;
-            count = 0;
-        }
-
-        //Check vertically
-        precolor = Color.EMPTY; count = 0;
-        for (int j = 0; j < BOARD_WIDTH; j++)    {
-            for (int i = 0; i < BOARD_HEIGHT; i++)    {
-                if (mBoard[j][i] == precolor && mBoard[j][i] != Color.EMPTY) {
-                    count++;
-                    if (count >= MOVES_TO_WIN-1) {
-                        setupWinningMove(j, i, precolor);
-                        return true;
-                    }
-                }
-                else {
-                    count = 0;
-                    mWinningMove.startPos.set(j, i);
-                }
-                precolor = mBoard[j][i];
-            }
-            precolor = Color.EMPTY;
-            count = 0;
-        }
-
-
-
-        //Check diagonally to the right
-        precolor = Color.EMPTY; count = 0;
-        for (int i = BOARD_HEIGHT-1; i >= 0; i--)    {
-            for (int j = 0; (j < BOARD_WIDTH && (i+j) < BOARD_HEIGHT); j++)    {
-                if (mBoard[j][i+j] == precolor && mBoard[j][i+j] != Color.EMPTY) {
-                    count++;
-                    if (count >= MOVES_TO_WIN-1) {
-                        setupWinningMove(j, i+j, precolor);
-                        return true;
-                    }
-                }
-                else {
-                    count = 0;
-                    mWinningMove.startPos.set(j, i+j);
-                }
-                precolor = mBoard[j][i+j];
-            }
-            precolor = Color.EMPTY;
-            count = 0;
-        }
-        precolor = Color.EMPTY; count = 0;
-        for (int j = 1; j < BOARD_WIDTH; j++)    {
-            for (int i = 0; (i < BOARD_HEIGHT && (i+j) < BOARD_WIDTH); i++)    {
-                if (mBoard[j+i][i] == precolor && mBoard[j+i][i] != Color.EMPTY) {
-                    count++;
-                    if (count >= MOVES_TO_WIN-1) {
-                        setupWinningMove(j+i, i, precolor);
-                        return true;
-                    }
+        WinningLines lines = mGeometry.getLines();
+        int length = lines.getLength();
+        int cells[] = lines.getWindowCells();
+        int windows[] = lines.getCellWindows();
+        int windowStart[] = lines.getCellWindowStart();
+        Point last = mLastPlacedBall;
+        Color color = last != null ? mBoard[last.x][last.y] : Color.EMPTY;
+        if (color != Color.EMPTY) {
+            int cell = lines.cellOf(last.x, last.y);
+            for (int w = windowStart[cell]; w < windowStart[cell + 1]; w++) {
+                int i = windows[w] * length;
+
+                int k = 0;
+                while (k < length && mBoard[lines.cellX(cells[i + k])][lines.cellY(cells[i + k])] == color) {
+                    k++;
                 }
-                else {
-                    count = 0;
-                    mWinningMove.startPos.set(j+i, i);
+                if (k == length) {
+                    int first = cells[i];
+                    int end = cells[i + length - 1];
+                    mWinningMove.startPos.set(lines.cellX(first), lines.cellY(first));
+                    setupWinningMove(lines.cellX(end), lines.cellY(end), color);
+                    return true;
                 }
-                precolor = mBoard[j+i][i];
             }
-            precolor = Color.EMPTY;
-            count = 0;
-        }
-
-        //Check diagonally to the left
-        precolor = Color.EMPTY; count = 0;
-        for (int i = BOARD_HEIGHT-1; i >= 0; i--)    {
-            for (int j = 0; (j < BOARD_WIDTH && (i+j) < BOARD_HEIGHT); j++)    {
-                if (mBoard[BOARD_WIDTH-1-j][i+j] == precolor && mBoard[BOARD_WIDTH-1-j][i+j] != Color.EMPTY) {
-                    count++;
-                    if (count >= MOVES_TO_WIN-1) {
-                        setupWinningMove(BOARD_WIDTH-1-j, i+j, precolor);
-                        return true;
-                    }
-                }
-                else {
-                    count = 0;
-                    mWinningMove.startPos.set(BOARD_WIDTH-1-j, i+j);
-                }
-                precolor = mBoard[BOARD_WIDTH-1-j][i+j];
-            }
-            count = 0;
-            precolor = Color.EMPTY;
-        }
-        precolor = Color.EMPTY; count = 0;
-        for (int j = BOARD_WIDTH-2; j >= 0; j--)    {
-            for (int i = 0; (i < BOARD_HEIGHT && (j-i) >= 0); i++)    {
-                if (mBoard[j-i][i] == precolor && mBoard[j-i][i] != Color.EMPTY) {
-                    count++;
-                    if (count >= MOVES_TO_WIN-1) {
-                        setupWinningMove(j-i, i, precolor);
-                        return true;
-                    }
-                }
-                else {
-                    count = 0;
-                    mWinningMove.startPos.set(j-i, i);
-                }
-                precolor = mBoard[j-i][i];
-            }
-            precolor = Color.EMPTY;
-            count = 0;
         }
 
         mWinningMove = null;
@@ -393,15 +351,16 @@ public class Connect4Model {
      */
     public boolean isBoardFull() {
 
-        for (int i = 0; i < BOARD_WIDTH; i++) {
-            for (int j = 0; j < BOARD_HEIGHT; j++) {
-                if (mBoard[i][j] == Color.EMPTY) {
-                    return false;
-                }
-            }
-        }
+        return mBallCount == mWidth * mHeight;
+    }
 
-        return true;
+    /**
+     * Resets the board to start a new game on a board of another size
+     * @param geometry size of the board and number of balls in a row needed to win
+     */
+    public void reset(BoardGeometry geometry) {
+        setupBoard(geometry);
+        reset();
     }
 
     /**
@@ -409,11 +368,14 @@ public class Connect4Model {
      */
     public void reset() {
 
-        for (int i = 0; i < BOARD_WIDTH; i++) {
-            for (int j = 0; j < BOARD_HEIGHT; j++) {
+        for (int i = 0; i < mWidth; i++) {
+            for (int j = 0; j < mHeight; j++) {
                 mBoard[i][j] = Color.EMPTY;
             }
+            mHeights[i] = 0;
         }
+        mBallCount = 0;
+        mVersion++;
 
         mWinningMove = null;
         mIsGameOver = false;
@@ -0,0 +1,547 @@
+package edu.cmu.pocketsphinx.demo;
+
+/**
+ * Bitboard representation of a connect 4 position, used by the bot while searching.
+ *
+ * Each player's balls are stored in a long. Every column takes height + 1 bits, bit 0 being the
+ * bottom of column 0. The extra bit on top of each column is always empty so that shifting a
+ * bitboard never wraps a line from one column into the next. Boards needing more than 64 bits keep
+ * the bits above 63 in a second long, see BoardGeometry. Wins are then found by walking the lines
+ * through the last ball instead of shifting, and the methods giving the bitboards themselves are
+ * only available on boards fitting in a long.
+ */
+public class Connect4Position {
+
+    //Players are indexed the same way as the board colors
+    public static final int PLAYER_RED = 0;
+    public static final int PLAYER_YELLOW = 1;
+    public static final int NO_PLAYER = -1;
+
+    //Marks a ball whose move isn't known as it came from a board of the model
+    private static final int UNKNOWN_BIT = -1;
+
+    private final BoardGeometry mGeometry;
+    private final int mWidth;
+    private final int mHeight;
+    private final int mSize;
+    private final int mWinLength;
+    private final int mColumnBits;
+    private final boolean mWide;
+
+    private final long mZobristBalls[][];
+    private final long mZobristMirrorBalls[][];
+    private final long mZobristPlayer;
+
+    //Bits 0 - 63 of every bitboard, and bits 64 and above on wide boards
+    private final long mBalls[] = new long[2];
+    private long mMask;
+    private final long mBallsHigh[] = new long[2];
+    private long mMaskHigh;
+
+    //Number of balls in every column, and the bit of every ball in the order they were played
+    private final int mHeights[];
+    private final int mPlayed[];
+
+    private int mPlayer;
+    private int mMoves;
+    private long mHash;
+    private long mMirrorHash;
+
+    public Connect4Position() {
+        this(BoardGeometry.STANDARD);
+    }
+
+    /**
+     * @param geometry board the position is played on
+     */
+    public Connect4Position(BoardGeometry geometry) {
+
+        mGeometry = geometry;
+        mWidth = geometry.getWidth();
+        mHeight = geometry.getHeight();
+        mSize = geometry.getSize();
+        mWinLength = geometry.getWinLength();
+        mColumnBits = geometry.getColumnBits();
+        mWide = geometry.isWide();
+
+        mZobristBalls = geometry.mZobristBalls;
+        mZobristMirrorBalls = geometry.mZobristMirrorBalls;
+        mZobristPlayer = geometry.mZobristPlayer;
+
+        mHeights = new int[mWidth];
+        mPlayed = new int[mSize];
+        mPlayer = PLAYER_RED;
+    }
+
+    /**
+     * @param other position to copy, the copy can then be played on independently
+     */
+    public Connect4Position(Connect4Position other) {
+        this(other.mGeometry);
+        set(other);
+    }
+
+    /**
+     * Converts a board of the model into a position on the standard board
+     * @param board board being played on
+     * @param toMove color of the player whose turn it is
+     * @return the position
+     */
+    public static Connect4Position fromBoard(Connect4Model.Color board[][], Connect4Model.Color toMove) {
+        return fromBoard(BoardGeometry.STANDARD, board, toMove);
+    }
+
+    /**
+     * Converts a board of the model into a position
+     * @param geometry size of the board and win length
+     * @param board board being played on
+     * @param toMove color of the player whose turn it is
+     * @return the position
+     */
+    public static Connect4Position fromBoard(BoardGeometry geometry, Connect4Model.Color board[][],
+                                             Connect4Model.Color toMove) {
+        Connect4Position position = new Connect4Position(geometry);
+        position.setBoard(board, toMove);
+        return position;
+    }
+
+    /**
+     * Makes the position a copy of another one, so positions can be reused instead of allocated
+     * @param other position to copy, on the same board
+     */
+    public void set(Connect4Position other) {
+
+        if (!other.mGeometry.equals(mGeometry)) {
+            throw new IllegalArgumentException("Position is on another board: " + other.mGeometry);
+        }
+        mBalls[PLAYER_RED] = other.mBalls[PLAYER_RED];
+        mBalls[PLAYER_YELLOW] = other.mBalls[PLAYER_YELLOW];
+        mMask = other.mMask;
+        mBallsHigh[PLAYER_RED] = other.mBallsHigh[PLAYER_RED];
+        mBallsHigh[PLAYER_YELLOW] = other.mBallsHigh[PLAYER_YELLOW];
+        mMaskHigh = other.mMaskHigh;
+        System.arraycopy(other.mHeights, 0, mHeights, 0, mWidth);
+        System.arraycopy(other.mPlayed, 0, mPlayed, 0, other.mMoves);
+        mPlayer = other.mPlayer;
+        mMoves = other.mMoves;
+        mHash = other.mHash;
+        mMirrorHash = other.mMirrorHash;
+    }
+
+    /**
+     * Makes the position the same as a board of the model
+     * @param board board being played on, of the size of the position's board
+     * @param toMove color of the player whose turn it is
+     */
+    public void setBoard(Connect4Model.Color board[][], Connect4Model.Color toMove) {
+
+        if (board.length != mWidth || board[0].length != mHeight) {
+            throw new IllegalArgumentException("Board isn't " + mWidth + "x" + mHeight);
+        }
+
+        clear();
+        for (int i = 0; i < mWidth; i++) {
+            for (int j = 0; j < mHeight; j++) {
+                if (board[i][j] != Connect4Model.Color.EMPTY) {
+                    addLoadedBall(i, j, playerOf(board[i][j]));
+                }
+            }
+        }
+        setLoadedPlayer(toMove);
+    }
+
+    /**
+     * Makes the position the same as a snapshot of the model
+     * @param snapshot board being played on, on the position's board
+     * @param toMove color of the player whose turn it is
+     */
+    public void setSnapshot(PositionSnapshot snapshot, Connect4Model.Color toMove) {
+
+        if (!snapshot.getGeometry().equals(mGeometry)) {
+            throw new IllegalArgumentException("Snapshot is on another board: " + snapshot.getGeometry());
+        }
+
+        clear();
+        for (int i = 0; i < mWidth; i++) {
+            int height = snapshot.getHeight(i);
+            for (int j = 0; j < height; j++) {
+                addLoadedBall(i, j, playerOf(snapshot.getColor(i, j)));
+            }
+        }
+        setLoadedPlayer(toMove);
+    }
+
+    /**
+     * Empties the board before a position is loaded
+     */
+    private void clear() {
+
+        mBalls[PLAYER_RED] = 0;
+        mBalls[PLAYER_YELLOW] = 0;
+        mMask = 0;
+        mBallsHigh[PLAYER_RED] = 0;
+        mBallsHigh[PLAYER_YELLOW] = 0;
+        mMaskHigh = 0;
+        mMoves = 0;
+        mHash = 0;
+        mMirrorHash = 0;
+        for (int i = 0; i < mWidth; i++) {
+            mHeights[i] = 0;
+        }
+    }
+
+    /**
+     * Adds a ball of a loaded position, its columns must be filled from the bottom up
+     * @param x column
+     * @param y row, 0 being the bottom
+     * @param player player owning the ball
+     */
+    private void addLoadedBall(int x, int y, int player) {
+
+        int bit = cellIndex(x, y);
+        if (bit < 64) {
+            mBalls[player] |= 1L << bit;
+            mMask |= 1L << bit;
+        }
+        else {
+            mBallsHigh[player] |= 1L << bit;
+            mMaskHigh |= 1L << bit;
+        }
+        mHeights[x]++;
+        mPlayed[mMoves++] = UNKNOWN_BIT;
+        mHash ^= mZobristBalls[player][bit];
+        mMirrorHash ^= mZobristMirrorBalls[player][bit];
+    }
+
+    private void setLoadedPlayer(Connect4Model.Color toMove) {
+
+        mPlayer = playerOf(toMove);
+        if (mPlayer == PLAYER_YELLOW) {
+            mHash ^= mZobristPlayer;
+            mMirrorHash ^= mZobristPlayer;
+        }
+    }
+
+    /**
+     * @param color RED or YELLOW
+     * @return the player index of the color
+     */
+    public static int playerOf(Connect4Model.Color color) {
+        return color == Connect4Model.Color.RED ? PLAYER_RED : PLAYER_YELLOW;
+    }
+
+    public static int otherPlayer(int player) {
+        return player ^ 1;
+    }
+
+    private int cellIndex(int x, int y) {
+        return x * mColumnBits + y;
+    }
+
+    /**
+     * @param bitboard bitboard to mirror, on a board fitting in a long
+     * @return the bitboard with its columns in reverse order
+     */
+    private long mirror(long bitboard) {
+        long mirrored = 0;
+        for (int col = 0; col < mWidth; col++) {
+            long column = (bitboard >>> (col * mColumnBits)) & ((1L << mColumnBits) - 1);
+            mirrored |= column << ((mWidth - 1 - col) * mColumnBits);
+        }
+        return mirrored;
+    }
+
+    /**
+     * @return the board the position is played on
+     */
+    public BoardGeometry getGeometry() {
+        return mGeometry;
+    }
+
+    /**
+     * @return the player whose turn it is
+     */
+    public int getPlayer() {
+        return mPlayer;
+    }
+
+    public int getMoves() {
+        return mMoves;
+    }
+
+    public int getSpacesLeft() {
+        return mSize - mMoves;
+    }
+
+    /**
+     * @return the Zobrist hash of the position, it is updated with every move
+     */
+    public long getHash() {
+        return mHash;
+    }
+
+    /**
+     * @return the Zobrist hash of the position mirrored left to right, it is updated with every move
+     */
+    public long getMirrorHash() {
+        return mMirrorHash;
+    }
+
+    /**
+     * @return the same hash for a position and its mirror image, the smallest of their hashes.
+     * Both have the same value so they can share a table entry.
+     */
+    public long getCanonicalHash() {
+        return Math.min(mHash, mMirrorHash);
+    }
+
+    /**
+     * @return true if the canonical hash is the one of the mirror image, moves stored under it are
+     * then mirrored
+     */
+    public boolean isCanonicalMirrored() {
+        return mMirrorHash < mHash;
+    }
+
+    /**
+     * @param player player index
+     * @return the bitboard of the player's balls, only on boards fitting in a long
+     */
+    public long getBalls(int player) {
+        checkNarrow();
+        return mBalls[player];
+    }
+
+    /**
+     * @return the bitboard of all occupied cells, only on boards fitting in a long
+     */
+    public long getMask() {
+        checkNarrow();
+        return mMask;
+    }
+
+    /**
+     * @return a key identifying the position exactly, the balls of the player to move plus the
+     * occupied cells. Unlike the hash it can't collide. Only on boards fitting in a long.
+     */
+    public long getKey() {
+        checkNarrow();
+        return mBalls[mPlayer] + mMask;
+    }
+
+    /**
+     * @return the key of the position mirrored left to right, only on boards fitting in a long
+     */
+    public long getMirrorKey() {
+        checkNarrow();
+        return mirror(mBalls[mPlayer]) + mirror(mMask);
+    }
+
+    private void checkNarrow() {
+        if (mWide) {
+            throw new UnsupportedOperationException("Bitboards of a " + mGeometry + " board don't fit in a long");
+        }
+    }
+
+    /**
+     * @return true if the position is its own mirror image, mirrored moves are then as good as each
+     * other
+     */
+    public boolean isSymmetric() {
+
+        for (int x = 0; x < mWidth / 2; x++) {
+            int mirrored = mWidth - 1 - x;
+            if (mHeights[x] != mHeights[mirrored]) {
+                return false;
+            }
+            for (int y = 0; y < mHeights[x]; y++) {
+                if (getCell(x, y) != getCell(mirrored, y)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @param x column
+     * @param y row, 0 being the bottom
+     * @return the player owning the cell or NO_PLAYER if it is empty
+     */
+    public int getCell(int x, int y) {
+        int bit = cellIndex(x, y);
+        long balls[] = bit < 64 ? mBalls : mBallsHigh;
+        if (((balls[PLAYER_RED] >>> bit) & 1) != 0) {
+            return PLAYER_RED;
+        }
+        if (((balls[PLAYER_YELLOW] >>> bit) & 1) != 0) {
+            return PLAYER_YELLOW;
+        }
+        return NO_PLAYER;
+    }
+
+    /**
+     * @param col column number, goes from 0 - width-1
+     * @return true if the column still has space
+     */
+    public boolean canPlay(int col) {
+        return mHeights[col] < mHeight;
+    }
+
+    /**
+     * @param col column number, goes from 0 - width-1
+     * @return the bit the next ball played in the column goes to
+     */
+    public int getMoveBit(int col) {
+        return col * mColumnBits + mHeights[col];
+    }
+
+    /**
+     * Drops a ball of the current player in the column. The column must not be full.
+     * @param col column number, goes from 0 - width-1
+     * @return the row it was placed in
+     */
+    public int play(int col) {
+
+        int row = mHeights[col]++;
+        int bit = col * mColumnBits + row;
+        //Shifts only use the low 6 bits of the amount, so this is also the bit in the high long
+        long move = 1L << bit;
+        if (bit < 64) {
+            mBalls[mPlayer] |= move;
+            mMask |= move;
+        }
+        else {
+            mBallsHigh[mPlayer] |= move;
+            mMaskHigh |= move;
+        }
+        mHash ^= mZobristBalls[mPlayer][bit] ^ mZobristPlayer;
+        mMirrorHash ^= mZobristMirrorBalls[mPlayer][bit] ^ mZobristPlayer;
+        mPlayed[mMoves] = bit;
+        mPlayer ^= 1;
+        mMoves++;
+        return row;
+    }
+
+    /**
+     * Takes back the top ball of the column, which must be the last ball played.
+     * @param col column number, goes from 0 - width-1
+     * @return the row it was removed from
+     */
+    public int undo(int col) {
+
+        int row = --mHeights[col];
+        int bit = col * mColumnBits + row;
+        long move = 1L << bit;
+        mPlayer ^= 1;
+        if (bit < 64) {
+            mBalls[mPlayer] &= ~move;
+            mMask &= ~move;
+        }
+        else {
+            mBallsHigh[mPlayer] &= ~move;
+            mMaskHigh &= ~move;
+        }
+        mHash ^= mZobristBalls[mPlayer][bit] ^ mZobristPlayer;
+        mMirrorHash ^= mZobristMirrorBalls[mPlayer][bit] ^ mZobristPlayer;
+        mMoves--;
+        return row;
+    }
+
+    /**
+     * @return true if the player who made the last move has a winning line
+     */
+    public boolean lastMoveWon() {
+
+        if (!mWide) {
+            return hasLine(mBalls[mPlayer ^ 1]);
+        }
+        if (mMoves == 0) {
+            return false;
+        }
+        int bit = mPlayed[mMoves - 1];
+        if (bit == UNKNOWN_BIT) {
+            return hasWon(mPlayer ^ 1);
+        }
+        return hasLineThrough(bit / mColumnBits, bit % mColumnBits, mPlayer ^ 1);
+    }
+
+    /**
+     * @param player player index
+     * @return true if the player has a winning line
+     */
+    public boolean hasWon(int player) {
+
+        if (!mWide) {
+            return hasLine(mBalls[player]);
+        }
+        for (int x = 0; x < mWidth; x++) {
+            for (int y = 0; y < mHeights[x]; y++) {
+                if (getCell(x, y) == player && hasLineThrough(x, y, player)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Checks a bitboard for a winning line in any direction by shifting it onto itself.
+     * @param balls bitboard of a single player, on a board fitting in a long
+     * @return true if there are enough connected balls
+     */
+    private boolean hasLine(long balls) {
+        return hasLine(balls, mColumnBits)
+                || hasLine(balls, 1)
+                || hasLine(balls, mColumnBits + 1)
+                || hasLine(balls, mColumnBits - 1);
+    }
+
+    /**
+     * @param balls bitboard of a single player
+     * @param step shift amount of one step along the direction
+     * @return true if there are enough connected balls along the direction
+     */
+    private boolean hasLine(long balls, int step) {
+
+        //Every doubling keeps the balls starting a run twice as long
+        long m = balls & (balls >>> step);
+        int length = 2;
+        while (2 * length <= mWinLength) {
+            m &= m >>> (length * step);
+            length *= 2;
+        }
+        if (length < mWinLength) {
+            m &= m >>> ((mWinLength - length) * step);
+        }
+        return m != 0;
+    }
+
+    /**
+     * Counts the balls of a player along the lines through a cell
+     * @param x column of the cell
+     * @param y row of the cell
+     * @param player player owning the cell
+     * @return true if one of the lines is long enough to win
+     */
+    private boolean hasLineThrough(int x, int y, int player) {
+        return countFrom(x, y, 1, 0, player) + countFrom(x, y, -1, 0, player) >= mWinLength - 1
+                || countFrom(x, y, 0, -1, player) >= mWinLength - 1
+                || countFrom(x, y, 1, 1, player) + countFrom(x, y, -1, -1, player) >= mWinLength - 1
+                || countFrom(x, y, 1, -1, player) + countFrom(x, y, -1, 1, player) >= mWinLength - 1;
+    }
+
+    /**
+     * @return the number of balls of the player next to the cell in a direction, the cell excluded
+     */
+    private int countFrom(int x, int y, int dx, int dy, int player) {
+        int count = 0;
+        for (x += dx, y += dy; x >= 0 && x < mWidth && y >= 0 && y < mHeight; x += dx, y += dy) {
+            if (getCell(x, y) != player) {
+                break;
+            }
+            count++;
+        }
+        return count;
+    }
+}
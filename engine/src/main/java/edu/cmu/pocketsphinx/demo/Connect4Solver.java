@@ -0,0 +1,475 @@
+package edu.cmu.pocketsphinx.demo;
+
+import java.util.Arrays;
+
+/**
+ * Exact solver for connect 4 positions. Unlike the bot's search it doesn't rate positions with the
+ * RATING_* weights, it always searches until the end of the game.
+ *
+ * A score is positive if the player to move wins, negative if they lose and 0 for a draw. A win
+ * scores the number of balls the winner still has left when making four in a row, plus one, so the
+ * quicker the win the higher the score. The search works on null windows: it only ever asks
+ * whether a position scores more than a given value, and narrows the score down with these tests.
+ */
+public class Connect4Solver {
+
+    //The solver only plays on the standard board, its bitboards are laid out like the positions'
+    private static final BoardGeometry GEOMETRY = BoardGeometry.STANDARD;
+    private static final int WIDTH = GEOMETRY.getWidth();
+    private static final int HEIGHT = GEOMETRY.getHeight();
+    private static final int SIZE = GEOMETRY.getSize();
+    private static final int COLUMN_BITS = HEIGHT + 1;
+
+    //Shift amounts to move one step along each direction
+    private static final int STEP_HORIZONTAL = COLUMN_BITS;
+    private static final int STEP_DIAGONAL_RIGHT = COLUMN_BITS + 1;
+    private static final int STEP_DIAGONAL_LEFT = COLUMN_BITS - 1;
+
+    private static final long BOTTOM_MASK = bottomMask();
+    private static final long BOARD_MASK = BOTTOM_MASK * ((1L << HEIGHT) - 1);
+
+    //A player needs at least four balls to win, so no score can be further from 0 than these
+    public static final int MIN_SCORE = -SIZE / 2 + 3;
+    public static final int MAX_SCORE = (SIZE + 1) / 2 - 3;
+
+    //Table values, upper bounds come first and lower bounds after them. 0 is an empty entry.
+    //Bounds can be a little outside the range of the scores, so the range is widened.
+    private static final int BOUND_RANGE = SIZE / 2 + 1;
+    private static final int UPPER_BOUND_OFFSET = BOUND_RANGE + 1;
+    private static final int LOWER_BOUND_OFFSET = 3 * BOUND_RANGE + 2;
+
+    private static final int VALUE_BITS = 8;
+    private static final long VALUE_MASK = (1L << VALUE_BITS) - 1;
+
+    public static final int DEFAULT_TABLE_MEMORY = 8 * 1024 * 1024;
+
+    //A cancelled request is only noticed every so many positions
+    private static final int STOP_CHECK_INTERVAL = 1024;
+
+    //Columns sorted from the center out, the middle ones usually make the best moves
+    private static final int COLUMN_ORDER[] = new int[WIDTH];
+
+    static {
+        for (int i = 0; i < WIDTH; i++) {
+            COLUMN_ORDER[i] = WIDTH / 2 + (i % 2 == 0 ? i / 2 : -(i + 1) / 2);
+        }
+    }
+
+    private static long bottomMask() {
+        long mask = 0;
+        for (int i = 0; i < WIDTH; i++) {
+            mask |= 1L << (i * COLUMN_BITS);
+        }
+        return mask;
+    }
+
+    private static long columnMask(int col) {
+        return ((1L << HEIGHT) - 1) << (col * COLUMN_BITS);
+    }
+
+    //Every entry packs the key of a position with its value
+    private final long mTable[];
+    private final int mTableShift;
+
+    //Moves of every ply and how many winning cells they make, sorted while searching
+    private final long mMoves[][] = new long[SIZE][WIDTH];
+    private final int mMoveScores[][] = new int[SIZE][WIDTH];
+
+    private long mNodes;
+    private int mScore;
+
+    //Request the solver answers, it gives up as soon as it is cancelled
+    private SearchHandle mHandle;
+    private boolean mAborted;
+
+    public Connect4Solver() {
+        this(DEFAULT_TABLE_MEMORY);
+    }
+
+    /**
+     * @param memoryBytes memory budget of the table, it is rounded down to a power of two entries
+     */
+    public Connect4Solver(int memoryBytes) {
+        int entries = Integer.highestOneBit(Math.max(memoryBytes / 8, 2));
+        mTable = new long[entries];
+        mTableShift = 64 - Integer.numberOfTrailingZeros(entries);
+    }
+
+    /**
+     * Forgets every position solved so far
+     */
+    public void clear() {
+        Arrays.fill(mTable, 0);
+    }
+
+    /**
+     * @return the number of positions searched since the solver was created
+     */
+    public long getNodes() {
+        return mNodes;
+    }
+
+    /**
+     * @return the score of the last position getBestMove was called on
+     */
+    public int getScore() {
+        return mScore;
+    }
+
+    /**
+     * Converts a score into the number of plies until the game is won
+     * @param score exact score of a position
+     * @param moves number of balls played in the position
+     * @return the number of balls still to be played until the winner makes four in a row, the
+     * winning ball included. Positive if the player to move wins, negative if they lose and 0 for a
+     * draw.
+     */
+    public static int getDistanceToWin(int score, int moves) {
+
+        if (score == 0) {
+            return 0;
+        }
+        //Balls played before the winning one, they have the parity of the winner's turns
+        int winnerParity = score > 0 ? moves % 2 : (moves + 1) % 2;
+        int played = SIZE - 2 * Math.abs(score) + winnerParity;
+        int distance = played - moves + 1;
+        return score > 0 ? distance : -distance;
+    }
+
+    /**
+     * Solves a position. No player must have four in a row yet.
+     * @param position position being played on
+     * @return the exact score of the position for the player to move
+     */
+    public int solve(Connect4Position position) {
+        return solve(position, false);
+    }
+
+    /**
+     * Solves a position. No player must have four in a row yet.
+     * @param position position being played on
+     * @param weak true to only find out whether the position is a win, a draw or a loss, which is
+     *             a lot quicker
+     * @return the score of the position for the player to move, only its sign if weak
+     */
+    public int solve(Connect4Position position, boolean weak) {
+        checkGeometry(position);
+        mAborted = false;
+        return solve(position.getBalls(position.getPlayer()), position.getMask(), position.getMoves(), weak);
+    }
+
+    /**
+     * Finds the best move of a position. No player must have four in a row yet and the board must
+     * not be full.
+     * @param position position being played on
+     * @return the column of the move with the highest score, the one closest to the center if more
+     * than one move has it
+     */
+    public int getBestMove(Connect4Position position) {
+        return getBestMove(position, false);
+    }
+
+    /**
+     * Finds the best move of a position unless a request is cancelled first. No player must have
+     * four in a row yet and the board must not be full.
+     * @param position position being played on
+     * @param handle request checked every STOP_CHECK_INTERVAL positions, or null
+     * @return the column of the best move, or -1 if the request was cancelled
+     */
+    public int getBestMove(Connect4Position position, SearchHandle handle) {
+
+        mHandle = handle;
+        try {
+            int move = getBestMove(position, false);
+            return mAborted ? -1 : move;
+        }
+        finally {
+            mHandle = null;
+        }
+    }
+
+    /**
+     * Finds the best move of a position. No player must have four in a row yet and the board must
+     * not be full.
+     * @param position position being played on
+     * @param weak true to only keep the result of the game, any win is then as good as the quickest
+     * @return the column of the best move, the one closest to the center if more than one move is
+     * as good
+     */
+    public int getBestMove(Connect4Position position, boolean weak) {
+
+        checkGeometry(position);
+        mAborted = false;
+        long current = position.getBalls(position.getPlayer());
+        long mask = position.getMask();
+        int moves = position.getMoves();
+
+        //A winning move has the highest possible score
+        long winning = winningCells(current, mask) & possibleMoves(mask);
+        if (winning != 0) {
+            mScore = weak ? 1 : (SIZE + 1 - moves) / 2;
+            return columnOf(winning);
+        }
+
+        int score = solve(current, mask, moves, weak);
+        mScore = score;
+
+        //The move keeping the score is the one after which the opponent scores at most -score
+        int fallback = -1;
+        for (int col : COLUMN_ORDER) {
+            long move = (mask + (BOTTOM_MASK & columnMask(col))) & columnMask(col);
+            if (move == 0) {
+                continue;
+            }
+            if (fallback == -1) {
+                fallback = col;
+            }
+            long nextCurrent = current ^ mask;
+            long nextMask = mask | move;
+            //The search can't start from a position the opponent wins right away
+            if ((winningCells(nextCurrent, nextMask) & possibleMoves(nextMask)) != 0) {
+                continue;
+            }
+            //A weak score is 1 for any win and -1 for any loss, the opponent must score at most the
+            //opposite of the result
+            int limit = weak ? Integer.signum(score) : score;
+            if (negamax(nextCurrent, nextMask, moves + 1, -limit, -limit + 1) <= -limit || mAborted) {
+                return col;
+            }
+        }
+        return fallback;
+    }
+
+    /**
+     * @param geometry size of a board and win length
+     * @return true if the solver can solve positions on the board
+     */
+    public static boolean supports(BoardGeometry geometry) {
+        return GEOMETRY.equals(geometry);
+    }
+
+    private static void checkGeometry(Connect4Position position) {
+        if (!supports(position.getGeometry())) {
+            throw new IllegalArgumentException("The solver only plays on a " + GEOMETRY + " board");
+        }
+    }
+
+    /**
+     * Iteratively narrows the score down with null window searches
+     */
+    private int solve(long current, long mask, int moves, boolean weak) {
+
+        if ((winningCells(current, mask) & possibleMoves(mask)) != 0) {
+            return weak ? 1 : (SIZE + 1 - moves) / 2;
+        }
+
+        int min = weak ? -1 : -(SIZE - moves) / 2;
+        int max = weak ? 1 : (SIZE + 1 - moves) / 2;
+        while (min < max) {
+            int med = min + (max - min) / 2;
+            //Tests closer to 0 are cheaper and most positions are close to a draw
+            if (med <= 0 && min / 2 < med)
+                med = min / 2;
+            else if (med >= 0 && max / 2 > med)
+                med = max / 2;
+
+            int score = negamax(current, mask, moves, med, med + 1);
+            if (mAborted)
+                return 0;
+            if (score <= med)
+                max = score;
+            else
+                min = score;
+        }
+        return min;
+    }
+
+    /**
+     * Scores a position which the player to move can't win right away
+     * @param current balls of the player to move
+     * @param mask occupied cells
+     * @param moves number of balls played
+     * @param alpha score the player to move is already sure to get
+     * @param beta score the opponent is already sure to hold the player to
+     * @return the exact score if it is between alpha and beta, otherwise a bound on it
+     */
+    private int negamax(long current, long mask, int moves, int alpha, int beta) {
+
+        if (++mNodes % STOP_CHECK_INTERVAL == 0 && mHandle != null && mHandle.isCancelled()) {
+            mAborted = true;
+        }
+        if (mAborted) {
+            return 0;
+        }
+
+        long possible = possibleNonLosingMoves(current, mask);
+        if (possible == 0) {
+            //Every move lets the opponent win right after
+            return -(SIZE - moves) / 2;
+        }
+
+        //Neither player can win with the last two balls
+        if (moves >= SIZE - 2) {
+            return 0;
+        }
+
+        int min = -(SIZE - 2 - moves) / 2;
+        if (alpha < min) {
+            alpha = min;
+            if (alpha >= beta) {
+                return alpha;
+            }
+        }
+
+        int max = (SIZE - 1 - moves) / 2;
+        if (beta > max) {
+            beta = max;
+            if (alpha >= beta) {
+                return beta;
+            }
+        }
+
+        long key = current + mask;
+        int value = probe(key);
+        if (value > 2 * BOUND_RANGE + 1) {
+            min = value - LOWER_BOUND_OFFSET;
+            if (alpha < min) {
+                alpha = min;
+                if (alpha >= beta) {
+                    return alpha;
+                }
+            }
+        }
+        else if (value != 0) {
+            max = value - UPPER_BOUND_OFFSET;
+            if (beta > max) {
+                beta = max;
+                if (alpha >= beta) {
+                    return beta;
+                }
+            }
+        }
+
+        //Moves making the most winning cells are tried first, the center first between equals
+        long sorted[] = mMoves[moves];
+        int scores[] = mMoveScores[moves];
+        int count = 0;
+        for (int i = 0; i < WIDTH; i++) {
+            long move = possible & columnMask(COLUMN_ORDER[i]);
+            if (move == 0) {
+                continue;
+            }
+            int score = Long.bitCount(winningCells(current | move, mask | move));
+
+            int j = count++;
+            while (j > 0 && scores[j - 1] < score) {
+                sorted[j] = sorted[j - 1];
+                scores[j] = scores[j - 1];
+                j--;
+            }
+            sorted[j] = move;
+            scores[j] = score;
+        }
+
+        for (int i = 0; i < count; i++) {
+            long move = sorted[i];
+            int score = -negamax(current ^ mask, mask | move, moves + 1, -beta, -alpha);
+            //An aborted search stores nothing, its scores are meaningless
+            if (mAborted) {
+                return 0;
+            }
+
+            if (score >= beta) {
+                store(key, score + LOWER_BOUND_OFFSET);
+                return score;
+            }
+            if (score > alpha) {
+                alpha = score;
+            }
+        }
+
+        store(key, alpha + UPPER_BOUND_OFFSET);
+        return alpha;
+    }
+
+    private int probe(long key) {
+        long entry = mTable[tableIndex(key)];
+        return (entry >>> VALUE_BITS) == key ? (int) (entry & VALUE_MASK) : 0;
+    }
+
+    private void store(long key, int value) {
+        mTable[tableIndex(key)] = (key << VALUE_BITS) | value;
+    }
+
+    private int tableIndex(long key) {
+        return (int) ((key * 0x9E3779B97F4A7C15L) >>> mTableShift);
+    }
+
+    private static int columnOf(long move) {
+        return Long.numberOfTrailingZeros(move) / COLUMN_BITS;
+    }
+
+    /**
+     * @param mask occupied cells
+     * @return the cells a ball can be played in
+     */
+    private static long possibleMoves(long mask) {
+        return (mask + BOTTOM_MASK) & BOARD_MASK;
+    }
+
+    /**
+     * @param current balls of the player to move
+     * @param mask occupied cells
+     * @return the moves which don't let the opponent win right after, 0 if there are none
+     */
+    private static long possibleNonLosingMoves(long current, long mask) {
+
+        long possible = possibleMoves(mask);
+        long opponentWinning = winningCells(current ^ mask, mask);
+        long forced = possible & opponentWinning;
+        if (forced != 0) {
+            //Two cells the opponent wins with can't both be blocked
+            if ((forced & (forced - 1)) != 0) {
+                return 0;
+            }
+            possible = forced;
+        }
+        //Never play right below a cell the opponent wins with
+        return possible & ~(opponentWinning >>> 1);
+    }
+
+    /**
+     * @param balls balls of a player
+     * @param mask occupied cells
+     * @return the empty cells which would give the player four in a row
+     */
+    static long winningCells(long balls, long mask) {
+
+        //Vertical, the three balls can only be below the cell
+        long cells = (balls << 1) & (balls << 2) & (balls << 3);
+
+        cells |= winningCells(balls, STEP_HORIZONTAL);
+        cells |= winningCells(balls, STEP_DIAGONAL_RIGHT);
+        cells |= winningCells(balls, STEP_DIAGONAL_LEFT);
+
+        return cells & (BOARD_MASK ^ mask);
+    }
+
+    /**
+     * @param balls balls of a player
+     * @param step shift amount of one step along the direction
+     * @return the cells completing three balls along the direction, occupied or not
+     */
+    private static long winningCells(long balls, int step) {
+
+        long pair = (balls << step) & (balls << 2 * step);
+        long cells = pair & (balls << 3 * step);
+        cells |= pair & (balls >>> step);
+
+        pair = (balls >>> step) & (balls >>> 2 * step);
+        cells |= pair & (balls << step);
+        cells |= pair & (balls >>> 3 * step);
+
+        return cells;
+    }
+}
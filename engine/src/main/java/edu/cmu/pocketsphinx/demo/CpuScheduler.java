@@ -0,0 +1,247 @@
+package edu.cmu.pocketsphinx.demo;
+
+/**
+ * Shares the CPU between the bot's search and the speech recognizer running on the same device.
+ *
+ * The search threads run at a lower priority and leave some cores to the recognizer. While the
+ * player speaks, from the start of speech to its end or a recognized keyword, they also only run
+ * part of the time: the workers sleep for the rest of every PERIOD_MILLIS. Difficulties limited by
+ * nodes play the same moves, a timed search searches less.
+ *
+ * The scheduler measures the recognizer's latency, from the start of speech to the keyword, and
+ * the positions the bot searches per second, both split by whether the bot searched while the
+ * player spoke. Comparing them with throttling on and off shows what it costs and what it gains.
+ */
+public class CpuScheduler {
+
+    public static final int DEFAULT_PRIORITY = Thread.NORM_PRIORITY - 2;
+    public static final int DEFAULT_RESERVED_CORES = 1;
+    public static final int DEFAULT_DUTY_CYCLE = 25;
+
+    //Length of a run and its pause while throttled. A search stopped or cancelled during a pause is
+    //woken up right away, see wake.
+    private static final long PERIOD_MILLIS = 4;
+    private static final long PERIOD_NANOS = PERIOD_MILLIS * 1000000;
+
+    //Measurements without and with the bot searching during speech
+    private static final int QUIET = 0;
+    private static final int OVERLAPPED = 1;
+
+    private volatile int mPriority = DEFAULT_PRIORITY;
+    private volatile int mReservedCores = DEFAULT_RESERVED_CORES;
+    private volatile int mDutyCycle = DEFAULT_DUTY_CYCLE;
+    private volatile boolean mThrottling = true;
+    private volatile boolean mSpeaking;
+
+    //Guarded by this
+    private int mActiveSearches;
+    private boolean mSpeechOverlapped;
+    private boolean mSearchOverlapped;
+    private long mSpeechStart;
+    private final long mLatencyCount[] = new long[2];
+    private final long mLatencyMillis[] = new long[2];
+    private final long mMaxLatencyMillis[] = new long[2];
+    private final long mSearchNodes[] = new long[2];
+    private final long mSearchMillis[] = new long[2];
+
+    /**
+     * @param priority Java priority of the search threads, from Thread.MIN_PRIORITY to
+     *                 Thread.MAX_PRIORITY
+     */
+    public void setPriority(int priority) {
+        mPriority = priority;
+    }
+
+    /**
+     * @param cores cores left to other work, the bot always searches on at least one thread
+     */
+    public void setReservedCores(int cores) {
+        mReservedCores = cores;
+    }
+
+    /**
+     * @param percent part of the time the search runs while the player speaks, 100 to never throttle
+     */
+    public void setDutyCycle(int percent) {
+        mDutyCycle = Math.max(1, Math.min(percent, 100));
+    }
+
+    /**
+     * @param throttling false to let the search run at full speed during speech, to measure what
+     *                   throttling changes
+     */
+    public synchronized void setThrottling(boolean throttling) {
+        mThrottling = throttling;
+        notifyAll();
+    }
+
+    /**
+     * @param workers threads the bot can search on
+     * @return the threads the bot searches on
+     */
+    public int getSearchThreads(int workers) {
+        int cores = Runtime.getRuntime().availableProcessors() - mReservedCores;
+        return Math.max(1, Math.min(workers, cores));
+    }
+
+    /**
+     * Gives the calling search thread its priority
+     */
+    public void applyPriority() {
+        Thread thread = Thread.currentThread();
+        int priority = mPriority;
+        if (thread.getPriority() != priority) {
+            thread.setPriority(priority);
+        }
+    }
+
+    /**
+     * Called by a search thread every so many nodes, it sleeps if it has run its share of the
+     * period
+     * @param runStart value returned by the last call on the thread, 0 on the first one
+     * @param bot bot searching, the thread doesn't sleep once its search is stopped
+     * @return the value to pass on the next call
+     */
+    long pace(long runStart, Connect4Bot bot) {
+
+        if (!mSpeaking || !mThrottling || mDutyCycle >= 100) {
+            return 0;
+        }
+        long now = System.nanoTime();
+        if (runStart == 0) {
+            return now;
+        }
+        long run = PERIOD_NANOS * mDutyCycle / 100;
+        if (now - runStart < run) {
+            return runStart;
+        }
+        pause(PERIOD_NANOS - run, bot);
+        return System.nanoTime();
+    }
+
+    /**
+     * Sleeps until the pause is over, throttling stops or the search is stopped
+     * @param nanos length of the pause
+     * @param bot bot searching
+     */
+    private synchronized void pause(long nanos, Connect4Bot bot) {
+
+        long deadline = System.nanoTime() + nanos;
+        long remaining = nanos;
+        while (mSpeaking && mThrottling && remaining > 0 && !bot.isStopped()) {
+            try {
+                wait(remaining / 1000000, (int) (remaining % 1000000));
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            remaining = deadline - System.nanoTime();
+        }
+    }
+
+    /**
+     * Wakes the search threads sleeping in a pause, called once their search is stopped or
+     * cancelled. They are set to stop before, so none goes back to sleep.
+     */
+    public synchronized void wake() {
+        notifyAll();
+    }
+
+    /**
+     * Called when the recognizer hears the player start speaking
+     */
+    public synchronized void onSpeechStarted() {
+        mSpeaking = true;
+        mSpeechStart = System.currentTimeMillis();
+        mSpeechOverlapped = mActiveSearches > 0;
+        mSearchOverlapped |= mActiveSearches > 0;
+    }
+
+    /**
+     * Called when the recognizer spots a keyword, the time since the start of speech is its latency
+     */
+    public synchronized void onSpeechRecognized() {
+        if (!mSpeaking) {
+            return;
+        }
+        int kind = mSpeechOverlapped ? OVERLAPPED : QUIET;
+        long latency = System.currentTimeMillis() - mSpeechStart;
+        mLatencyCount[kind]++;
+        mLatencyMillis[kind] += latency;
+        mMaxLatencyMillis[kind] = Math.max(mMaxLatencyMillis[kind], latency);
+    }
+
+    /**
+     * Called when the player stops speaking or the recognizer is restarted, the search runs at full
+     * speed again
+     */
+    public synchronized void onSpeechEnded() {
+        mSpeaking = false;
+        notifyAll();
+    }
+
+    /**
+     * Called by the bot when it starts searching, on its turn or the human's
+     */
+    synchronized void onSearchStarted() {
+        if (mActiveSearches++ == 0) {
+            mSearchOverlapped = mSpeaking;
+        }
+        mSpeechOverlapped |= mSpeaking;
+    }
+
+    /**
+     * Called by the bot when it is done searching
+     * @param nodes positions searched
+     * @param millis time spent searching
+     */
+    synchronized void onSearchDone(long nodes, long millis) {
+        int kind = mSearchOverlapped ? OVERLAPPED : QUIET;
+        mSearchNodes[kind] += nodes;
+        mSearchMillis[kind] += millis;
+        mActiveSearches--;
+    }
+
+    /**
+     * @param overlapped true for the utterances during which the bot searched
+     * @return the average recognizer latency in milliseconds, 0 if nothing was recognized
+     */
+    public synchronized long getAverageLatencyMillis(boolean overlapped) {
+        int kind = overlapped ? OVERLAPPED : QUIET;
+        return mLatencyMillis[kind] / Math.max(mLatencyCount[kind], 1);
+    }
+
+    /**
+     * @param overlapped true for the searches during which the player spoke
+     * @return the positions searched per second
+     */
+    public synchronized long getNodesPerSecond(boolean overlapped) {
+        int kind = overlapped ? OVERLAPPED : QUIET;
+        return mSearchNodes[kind] * 1000 / Math.max(mSearchMillis[kind], 1);
+    }
+
+    /**
+     * Forgets the measurements, to start comparing another setting
+     */
+    public synchronized void resetMetrics() {
+        for (int kind = QUIET; kind <= OVERLAPPED; kind++) {
+            mLatencyCount[kind] = 0;
+            mLatencyMillis[kind] = 0;
+            mMaxLatencyMillis[kind] = 0;
+            mSearchNodes[kind] = 0;
+            mSearchMillis[kind] = 0;
+        }
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "throttling " + (mThrottling ? mDutyCycle + "%" : "off")
+                + " recognizer latency ms: quiet avg " + getAverageLatencyMillis(false)
+                + " max " + mMaxLatencyMillis[QUIET] + " (" + mLatencyCount[QUIET] + ")"
+                + ", bot searching avg " + getAverageLatencyMillis(true)
+                + " max " + mMaxLatencyMillis[OVERLAPPED] + " (" + mLatencyCount[OVERLAPPED] + ")"
+                + " bot nps: quiet " + getNodesPerSecond(false)
+                + ", player speaking " + getNodesPerSecond(true);
+    }
+}
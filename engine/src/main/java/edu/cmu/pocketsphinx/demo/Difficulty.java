@@ -0,0 +1,101 @@
+package edu.cmu.pocketsphinx.demo;
+
+/**
+ * How strong the bot plays, chosen when a game is created.
+ *
+ * The levels limit the search by depth and by the number of positions searched rather than by
+ * time, so they play the same whatever else the device is busy with and however fast it is. Such a
+ * level searches on a single thread and doesn't ponder, so from a new game the bot always answers
+ * the same moves with the same moves. A time cap can be added as a safety net, the search then
+ * depends on the clock again once the cap is reached.
+ */
+public final class Difficulty {
+
+    //Value of a limit meaning there is none
+    public static final int NO_LIMIT = 0;
+
+    public static final Difficulty EASY = new Difficulty("Easy", 2, 500, NO_LIMIT, 0, false);
+    public static final Difficulty MEDIUM = new Difficulty("Medium", 6, 20000, NO_LIMIT, 12, false);
+    public static final Difficulty HARD = new Difficulty("Hard", NO_LIMIT, 300000, NO_LIMIT,
+            Connect4Bot.DEFAULT_SOLVER_EMPTY_CELLS, true);
+
+    //Every thread searches for as long as the bot's time limit allows, as before the levels
+    public static final Difficulty TIMED = new Difficulty("Timed", NO_LIMIT, NO_LIMIT, Connect4Bot.MAX_TIME,
+            Connect4Bot.DEFAULT_SOLVER_EMPTY_CELLS, true);
+
+    private final String mName;
+    private final int mMaxDepth;
+    private final long mNodeBudget;
+    private final int mTimeCapMillis;
+    private final int mSolverEmptyCells;
+    private final boolean mUseBook;
+
+    /**
+     * @param name name shown to the player
+     * @param maxDepth deepest iteration searched, or NO_LIMIT
+     * @param nodeBudget positions searched at most for a move, or NO_LIMIT. The search stops
+     *                   within STOP_CHECK_INTERVAL positions of the budget.
+     * @param timeCapMillis time spent at most on a move, or NO_LIMIT
+     * @param solverEmptyCells positions with at most this many empty cells are solved exactly, 0 to
+     *                         always search
+     * @param useBook true to answer the first moves from the opening book
+     * @throws IllegalArgumentException if nothing limits the search
+     */
+    public Difficulty(String name, int maxDepth, long nodeBudget, int timeCapMillis, int solverEmptyCells,
+                      boolean useBook) {
+        if (maxDepth == NO_LIMIT && nodeBudget == NO_LIMIT && timeCapMillis == NO_LIMIT) {
+            throw new IllegalArgumentException("Difficulty " + name + " doesn't limit the search");
+        }
+        mName = name;
+        mMaxDepth = maxDepth;
+        mNodeBudget = nodeBudget;
+        mTimeCapMillis = timeCapMillis;
+        mSolverEmptyCells = solverEmptyCells;
+        mUseBook = useBook;
+    }
+
+    public String getName() {
+        return mName;
+    }
+
+    /**
+     * @return the deepest iteration searched, or NO_LIMIT
+     */
+    public int getMaxDepth() {
+        return mMaxDepth;
+    }
+
+    /**
+     * @return the positions searched at most for a move, or NO_LIMIT
+     */
+    public long getNodeBudget() {
+        return mNodeBudget;
+    }
+
+    /**
+     * @return the time spent at most on a move, or NO_LIMIT
+     */
+    public int getTimeCapMillis() {
+        return mTimeCapMillis;
+    }
+
+    public int getSolverEmptyCells() {
+        return mSolverEmptyCells;
+    }
+
+    public boolean usesBook() {
+        return mUseBook;
+    }
+
+    /**
+     * @return true if the moves don't depend on the clock, as long as the time cap isn't reached
+     */
+    public boolean isReproducible() {
+        return mNodeBudget != NO_LIMIT || mMaxDepth != NO_LIMIT;
+    }
+
+    @Override
+    public String toString() {
+        return mName;
+    }
+}
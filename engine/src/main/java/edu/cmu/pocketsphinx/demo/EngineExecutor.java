@@ -0,0 +1,199 @@
+package edu.cmu.pocketsphinx.demo;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Runs everything the game asks of a bot on one thread of its own, so requests never overlap.
+ *
+ * Every request gets a SearchHandle. A new request supersedes the previous one: if it hasn't
+ * started it is skipped, otherwise its search is cancelled and stops within a millisecond. A move
+ * is passed to the result executor, the main thread of the app, and only delivered there if no
+ * other request was made since.
+ */
+public class EngineExecutor {
+
+    /**
+     * Receives the bot's moves on the result executor
+     */
+    public interface MoveCallback {
+
+        /**
+         * @param move move of the bot, for the snapshot it was asked for
+         */
+        void onMove(BotMove move);
+    }
+
+    private final Connect4Bot mBot;
+    private final Executor mResultExecutor;
+    private final ExecutorService mEngineThread;
+
+    //Latest request, the only one whose result is delivered
+    private SearchHandle mCurrent;
+
+    /**
+     * @param bot bot to run, it must only be used through the executor from now on
+     * @param resultExecutor executor the moves are delivered on
+     */
+    public EngineExecutor(Connect4Bot bot, Executor resultExecutor) {
+        mBot = bot;
+        mResultExecutor = resultExecutor;
+        mEngineThread = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "Connect4Bot engine");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    public Connect4Bot getBot() {
+        return mBot;
+    }
+
+    /**
+     * Asks the bot for its move, superseding any earlier request
+     * @param snapshot board the bot is to move on
+     * @param callback receives the move unless the request is superseded first
+     * @return the handle of the request
+     */
+    public synchronized SearchHandle requestMove(final PositionSnapshot snapshot, final MoveCallback callback) {
+
+        final SearchHandle handle = supersede();
+        mEngineThread.execute(new Runnable() {
+            @Override
+            public void run() {
+                if (handle.isCancelled()) {
+                    handle.setDone();
+                    return;
+                }
+                final BotMove move = mBot.getNextMove(snapshot, handle);
+                handle.setDone();
+                if (handle.isCancelled()) {
+                    return;
+                }
+                mResultExecutor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (finish(handle)) {
+                            callback.onMove(move);
+                        }
+                    }
+                });
+            }
+        });
+        return handle;
+    }
+
+    /**
+     * Lets the bot think on the human's turn, see Connect4Bot.startPondering. The next request
+     * picks up what pondering found.
+     * @param snapshot board the human is to move on
+     * @return the handle of the request
+     */
+    public synchronized SearchHandle ponder(PositionSnapshot snapshot) {
+        return speculate(snapshot, -1);
+    }
+
+    /**
+     * Lets the bot search the position after a move the human is about to play, while their
+     * finger is still on the screen. The next request picks the search up if they play it and
+     * drops it otherwise.
+     * @param snapshot board the human is to move on
+     * @param column column the human is expected to play, -1 to guess it
+     * @return the handle of the request
+     */
+    public synchronized SearchHandle speculate(final PositionSnapshot snapshot, final int column) {
+
+        final SearchHandle handle = supersede();
+        mEngineThread.execute(new Runnable() {
+            @Override
+            public void run() {
+                if (!handle.isCancelled()) {
+                    mBot.startPondering(snapshot, column);
+                }
+                handle.setDone();
+            }
+        });
+        return handle;
+    }
+
+    /**
+     * Cancels the current request and stops pondering, freeing the CPU
+     */
+    public synchronized void cancel() {
+
+        cancelCurrent();
+        mEngineThread.execute(new Runnable() {
+            @Override
+            public void run() {
+                mBot.stopPondering();
+            }
+        });
+    }
+
+    /**
+     * Cancels the current request and makes the bot forget earlier games, see Connect4Bot.clear
+     */
+    public synchronized void newGame() {
+
+        cancel();
+        mEngineThread.execute(new Runnable() {
+            @Override
+            public void run() {
+                mBot.clear();
+            }
+        });
+    }
+
+    /**
+     * Cancels the current request and stops the bot's threads. The executor can't be used anymore.
+     */
+    public synchronized void shutdown() {
+
+        cancel();
+        mEngineThread.execute(new Runnable() {
+            @Override
+            public void run() {
+                mBot.shutdown();
+            }
+        });
+        mEngineThread.shutdown();
+    }
+
+    /**
+     * Cancels the current request and starts a new one
+     * @return the handle of the new request
+     */
+    private SearchHandle supersede() {
+
+        cancelCurrent();
+        mCurrent = new SearchHandle();
+        return mCurrent;
+    }
+
+    private void cancelCurrent() {
+
+        if (mCurrent != null) {
+            mCurrent.cancel();
+            mCurrent = null;
+        }
+    }
+
+    /**
+     * Called on the result executor before a move is delivered
+     * @param handle request the move was found for
+     * @return true if it is still the latest request, it is then done
+     */
+    private synchronized boolean finish(SearchHandle handle) {
+
+        if (handle != mCurrent || handle.isCancelled()) {
+            return false;
+        }
+        mCurrent = null;
+        return true;
+    }
+}
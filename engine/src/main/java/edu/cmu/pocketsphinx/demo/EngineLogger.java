@@ -0,0 +1,42 @@
+package edu.cmu.pocketsphinx.demo;
+
+/**
+ * Receives the messages of the engine. The engine runs on plain Java, the app passes one writing
+ * to the Android log and other hosts can write wherever they like.
+ */
+public interface EngineLogger {
+
+    //Drops every message, used until another logger is set
+    EngineLogger NONE = new EngineLogger() {
+        @Override
+        public boolean isEnabled() {
+            return false;
+        }
+
+        @Override
+        public void debug(String tag, String message) {
+        }
+
+        @Override
+        public void error(String tag, String message, Throwable error) {
+        }
+    };
+
+    /**
+     * @return false if messages are dropped anyway, so they don't need to be built
+     */
+    boolean isEnabled();
+
+    /**
+     * @param tag class the message comes from
+     * @param message message to log
+     */
+    void debug(String tag, String message);
+
+    /**
+     * @param tag class the message comes from
+     * @param message message to log
+     * @param error cause of the error, or null
+     */
+    void error(String tag, String message, Throwable error);
+}
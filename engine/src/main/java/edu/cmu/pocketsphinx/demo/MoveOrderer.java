@@ -0,0 +1,220 @@
+package edu.cmu.pocketsphinx.demo;
+
+import java.util.Arrays;
+
+/**
+ * Decides in which order the bot tries the moves of a position. Alpha-beta cuts off the most when
+ * the best move is tried first, so the moves most likely to be good come first.
+ *
+ * Each source of ordering can be turned on or off:
+ * CENTER_FIRST tries the middle columns before the sides, TABLE_MOVE tries the best move found by
+ * an earlier search of the position first, KILLERS tries the moves which caused a cutoff at the same
+ * ply and HISTORY tries the moves which caused the most cutoffs anywhere in the search.
+ */
+public class MoveOrderer {
+
+    public static final int CENTER_FIRST = 1;
+    public static final int TABLE_MOVE = 1 << 1;
+    public static final int KILLERS = 1 << 2;
+    public static final int HISTORY = 1 << 3;
+    public static final int ALL_SOURCES = CENTER_FIRST | TABLE_MOVE | KILLERS | HISTORY;
+
+    //Priorities of the sources, the history score is always smaller than a killer's
+    private static final int PRIORITY_TABLE_MOVE = 1 << 30;
+    private static final int PRIORITY_KILLER_1 = 1 << 29;
+    private static final int PRIORITY_KILLER_2 = 1 << 28;
+    private static final int HISTORY_MAX = 1 << 20;
+
+    private final int mSources;
+    private final int mWidth;
+    private final int mMaxPly;
+
+    //Columns sorted from the center out
+    private final int mCenterOrder[];
+
+    private final int mMoves[][];
+    private final int mPriorities[][];
+    private final int mKillers[][];
+    private final int mHistory[][];
+
+    private long mCutoffs;
+    private long mFirstMoveCutoffs;
+
+    public MoveOrderer() {
+        this(ALL_SOURCES);
+    }
+
+    /**
+     * @param sources the sources used to order the moves, e.g. CENTER_FIRST | KILLERS
+     */
+    public MoveOrderer(int sources) {
+        this(BoardGeometry.STANDARD, sources);
+    }
+
+    /**
+     * @param geometry board the positions are played on
+     * @param sources the sources used to order the moves, e.g. CENTER_FIRST | KILLERS
+     */
+    public MoveOrderer(BoardGeometry geometry, int sources) {
+        mSources = sources;
+        mWidth = geometry.getWidth();
+        mMaxPly = geometry.getSize() + 1;
+        mCenterOrder = centerOrder(mWidth);
+        mMoves = new int[mMaxPly][mWidth];
+        mPriorities = new int[mMaxPly][mWidth];
+        mKillers = new int[mMaxPly][2];
+        mHistory = new int[2][mWidth * geometry.getColumnBits()];
+        clearKillers();
+    }
+
+    /**
+     * @param width number of columns
+     * @return the columns sorted from the center out
+     */
+    static int[] centerOrder(int width) {
+        int order[] = new int[width];
+        for (int i = 0; i < width; i++) {
+            //width/2, width/2 - 1, width/2 + 1, width/2 - 2, ...
+            order[i] = width / 2 + (i % 2 == 0 ? i / 2 : -(i + 1) / 2);
+        }
+        return order;
+    }
+
+    /**
+     * Called at the start of every move. Killers are forgotten as plies don't match anymore and
+     * the history is aged so the current position counts the most.
+     */
+    public void newSearch() {
+
+        clearKillers();
+        for (int player = 0; player < 2; player++) {
+            for (int i = 0; i < mHistory[player].length; i++) {
+                mHistory[player][i] >>= 1;
+            }
+        }
+        resetCounters();
+    }
+
+    /**
+     * Starts counting the cutoffs again, keeping what was learned
+     */
+    public void resetCounters() {
+        mCutoffs = 0;
+        mFirstMoveCutoffs = 0;
+    }
+
+    /**
+     * Forgets the history as well, as if the orderer was new
+     */
+    public void clear() {
+
+        clearKillers();
+        for (int player = 0; player < 2; player++) {
+            Arrays.fill(mHistory[player], 0);
+        }
+        mCutoffs = 0;
+        mFirstMoveCutoffs = 0;
+    }
+
+    private void clearKillers() {
+        for (int ply = 0; ply < mMaxPly; ply++) {
+            mKillers[ply][0] = -1;
+            mKillers[ply][1] = -1;
+        }
+    }
+
+    /**
+     * Orders the playable moves of a position, they can then be read with getMoves
+     * @param position position being played on
+     * @param ply how many moves were played since the root
+     * @param tableMove best move of an earlier search of the position, or -1
+     * @return the number of playable moves
+     */
+    public int orderMoves(Connect4Position position, int ply, int tableMove) {
+
+        int moves[] = mMoves[ply];
+        int priorities[] = mPriorities[ply];
+        int history[] = mHistory[position.getPlayer()];
+        int count = 0;
+
+        for (int i = 0; i < mWidth; i++) {
+            int col = (mSources & CENTER_FIRST) != 0 ? mCenterOrder[i] : i;
+            if (!position.canPlay(col)) {
+                continue;
+            }
+
+            int priority = 0;
+            if ((mSources & TABLE_MOVE) != 0 && col == tableMove) {
+                priority = PRIORITY_TABLE_MOVE;
+            }
+            else if ((mSources & KILLERS) != 0 && col == mKillers[ply][0]) {
+                priority = PRIORITY_KILLER_1;
+            }
+            else if ((mSources & KILLERS) != 0 && col == mKillers[ply][1]) {
+                priority = PRIORITY_KILLER_2;
+            }
+            else if ((mSources & HISTORY) != 0) {
+                priority = history[position.getMoveBit(col)];
+            }
+
+            //Insertion sort, equal priorities keep the center first order
+            int j = count++;
+            while (j > 0 && priorities[j - 1] < priority) {
+                moves[j] = moves[j - 1];
+                priorities[j] = priorities[j - 1];
+                j--;
+            }
+            moves[j] = col;
+            priorities[j] = priority;
+        }
+
+        return count;
+    }
+
+    /**
+     * @param ply how many moves were played since the root
+     * @return the moves ordered by the last call to orderMoves for the ply
+     */
+    public int[] getMoves(int ply) {
+        return mMoves[ply];
+    }
+
+    /**
+     * Records a move which caused a cutoff. Must be called before the move is played.
+     * @param position position being played on
+     * @param ply how many moves were played since the root
+     * @param col column of the move
+     * @param depth depth left when the move was searched
+     * @param index position of the move in the order it was tried
+     */
+    public void onCutoff(Connect4Position position, int ply, int col, int depth, int index) {
+
+        mCutoffs++;
+        if (index == 0) {
+            mFirstMoveCutoffs++;
+        }
+
+        if (mKillers[ply][0] != col) {
+            mKillers[ply][1] = mKillers[ply][0];
+            mKillers[ply][0] = col;
+        }
+
+        int history[] = mHistory[position.getPlayer()];
+        int bit = position.getMoveBit(col);
+        history[bit] = Math.min(history[bit] + depth * depth, HISTORY_MAX);
+    }
+
+    /**
+     * @return the number of cutoffs since the start of the move
+     */
+    public long getCutoffs() {
+        return mCutoffs;
+    }
+
+    /**
+     * @return the number of cutoffs caused by the first move tried since the start of the move
+     */
+    public long getFirstMoveCutoffs() {
+        return mFirstMoveCutoffs;
+    }
+}
@@ -0,0 +1,127 @@
+package edu.cmu.pocketsphinx.demo;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Perfect play moves for the first plies of a game, read from a file made by OpeningBookGenerator.
+ *
+ * The file starts with a header of six ints: MAGIC, VERSION, the width and height of the board, the
+ * number of plies covered and the number of entries. Every entry is then a long, the key of a
+ * position shifted left by MOVE_BITS with the best move in the low bits, sorted by key. A position
+ * and its mirror image only have one entry, the one with the smallest key.
+ *
+ * The file is memory mapped so looking a position up only reads the few pages the binary search
+ * touches.
+ */
+public class OpeningBook {
+
+    public static final String FILE_NAME = "connect4-book.bin";
+
+    //Books are only made for the standard board
+    static final BoardGeometry GEOMETRY = BoardGeometry.STANDARD;
+
+    static final int MAGIC = 0x43344F42; //C4OB
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 6 * 4;
+    static final int MOVE_BITS = 4;
+    private static final long MOVE_MASK = (1L << MOVE_BITS) - 1;
+
+    private final LongBuffer mEntries;
+    private final int mPlies;
+
+    private OpeningBook(LongBuffer entries, int plies) {
+        mEntries = entries;
+        mPlies = plies;
+    }
+
+    /**
+     * Maps a book file
+     * @param file file made by OpeningBookGenerator
+     * @return the book
+     * @throws IOException if the file can't be read or isn't a book for this board
+     */
+    public static OpeningBook open(File file) throws IOException {
+
+        RandomAccessFile input = new RandomAccessFile(file, "r");
+        try {
+            FileChannel channel = input.getChannel();
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+            if (buffer.remaining() < HEADER_BYTES || buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                throw new IOException("Not an opening book: " + file);
+            }
+            if (buffer.getInt() != GEOMETRY.getWidth() || buffer.getInt() != GEOMETRY.getHeight()) {
+                throw new IOException("Opening book is for another board size: " + file);
+            }
+            int plies = buffer.getInt();
+            int count = buffer.getInt();
+            if (buffer.remaining() != count * 8L) {
+                throw new IOException("Opening book is truncated: " + file);
+            }
+
+            //The mapping stays valid once the channel is closed
+            return new OpeningBook(buffer.slice().asLongBuffer(), plies);
+        }
+        finally {
+            input.close();
+        }
+    }
+
+    /**
+     * @return the number of plies from the start of the game the book covers
+     */
+    public int getPlies() {
+        return mPlies;
+    }
+
+    /**
+     * @return the number of positions in the book
+     */
+    public int size() {
+        return mEntries.limit();
+    }
+
+    /**
+     * Looks up the best move of a position
+     * @param position position being played on
+     * @return the column of the best move, or -1 if the position isn't in the book or is on another
+     * board
+     */
+    public int getMove(Connect4Position position) {
+
+        if (position.getMoves() >= mPlies || !GEOMETRY.equals(position.getGeometry())) {
+            return -1;
+        }
+
+        long key = position.getKey();
+        long mirrorKey = position.getMirrorKey();
+        if (key <= mirrorKey) {
+            return find(key);
+        }
+        int move = find(mirrorKey);
+        return move == -1 ? -1 : GEOMETRY.getWidth() - 1 - move;
+    }
+
+    private int find(long key) {
+
+        int low = 0;
+        int high = mEntries.limit() - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            long entry = mEntries.get(mid);
+            long entryKey = entry >>> MOVE_BITS;
+            if (entryKey < key)
+                low = mid + 1;
+            else if (entryKey > key)
+                high = mid - 1;
+            else
+                return (int) (entry & MOVE_MASK);
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,84 @@
+package edu.cmu.pocketsphinx.demo;
+
+/**
+ * An immutable copy of the model's board, which another thread can read while the model changes.
+ *
+ * The board is kept as the height of every column and one bit per ball telling its color, cell
+ * x * height + y being bit x * height + y of the color bits. Every change of the model gives it a
+ * new version, so a result computed from a snapshot can be checked against the model before it is
+ * used.
+ */
+public final class PositionSnapshot {
+
+    private final long mVersion;
+    private final BoardGeometry mGeometry;
+    private final int mHeight;
+    private final byte mHeights[];
+    private final long mYellow[];
+    private final int mBallCount;
+
+    /**
+     * @param version version of the model the board was taken from
+     * @param geometry board of the model
+     * @param board board to copy
+     */
+    PositionSnapshot(long version, BoardGeometry geometry, Connect4Model.Color board[][]) {
+
+        mVersion = version;
+        mGeometry = geometry;
+        mHeight = geometry.getHeight();
+        mHeights = new byte[geometry.getWidth()];
+        mYellow = new long[(geometry.getSize() + 63) >>> 6];
+
+        int count = 0;
+        for (int x = 0; x < mHeights.length; x++) {
+            int y = 0;
+            while (y < mHeight && board[x][y] != Connect4Model.Color.EMPTY) {
+                if (board[x][y] == Connect4Model.Color.YELLOW) {
+                    int cell = x * mHeight + y;
+                    mYellow[cell >>> 6] |= 1L << cell;
+                }
+                y++;
+            }
+            mHeights[x] = (byte) y;
+            count += y;
+        }
+        mBallCount = count;
+    }
+
+    /**
+     * @return the version of the model the board was taken from, it grows with every change
+     */
+    public long getVersion() {
+        return mVersion;
+    }
+
+    public BoardGeometry getGeometry() {
+        return mGeometry;
+    }
+
+    /**
+     * @param col column number, goes from 0 - width-1
+     * @return the number of balls in the column
+     */
+    public int getHeight(int col) {
+        return mHeights[col];
+    }
+
+    public int getBallCount() {
+        return mBallCount;
+    }
+
+    /**
+     * @param x column
+     * @param y row, 0 being the bottom
+     * @return the color of the ball in the cell, EMPTY if there is none
+     */
+    public Connect4Model.Color getColor(int x, int y) {
+        if (y >= mHeights[x]) {
+            return Connect4Model.Color.EMPTY;
+        }
+        int cell = x * mHeight + y;
+        return ((mYellow[cell >>> 6] >>> cell) & 1) != 0 ? Connect4Model.Color.YELLOW : Connect4Model.Color.RED;
+    }
+}
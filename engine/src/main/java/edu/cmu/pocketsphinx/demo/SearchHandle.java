@@ -0,0 +1,47 @@
+package edu.cmu.pocketsphinx.demo;
+
+/**
+ * One request to the bot, which the thread asking for it can cancel while the bot thinks. The
+ * bot checks it as often as its stop flag, so a cancelled search stops within about a thousand
+ * positions.
+ */
+public final class SearchHandle {
+
+    private volatile boolean mCancelled;
+    private volatile boolean mDone;
+    //Woken up on cancellation, the search may be asleep in one of its pauses
+    private volatile CpuScheduler mScheduler;
+
+    /**
+     * Stops the request, its result is never delivered. Can be called from any thread.
+     */
+    public void cancel() {
+        mCancelled = true;
+        CpuScheduler scheduler = mScheduler;
+        if (scheduler != null) {
+            scheduler.wake();
+        }
+    }
+
+    /**
+     * @param scheduler scheduler the search of the request is paced by, or null
+     */
+    void setScheduler(CpuScheduler scheduler) {
+        mScheduler = scheduler;
+    }
+
+    public boolean isCancelled() {
+        return mCancelled;
+    }
+
+    /**
+     * @return true once the bot is done with the request, whether it was cancelled or not
+     */
+    public boolean isDone() {
+        return mDone;
+    }
+
+    void setDone() {
+        mDone = true;
+    }
+}
@@ -0,0 +1,13 @@
+package edu.cmu.pocketsphinx.demo;
+
+/**
+ * Told about every move the bot finds, to record how it searched without parsing its log
+ */
+public interface SearchListener {
+
+    /**
+     * Called on the thread which asked for the move, before the move is returned
+     * @param stats how the move was found, only valid during the call
+     */
+    void onSearchDone(SearchStats stats);
+}
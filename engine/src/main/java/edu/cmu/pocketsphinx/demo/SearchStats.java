@@ -0,0 +1,259 @@
+package edu.cmu.pocketsphinx.demo;
+
+import java.util.Arrays;
+
+/**
+ * What the bot did to find a move: where the move came from, how much it searched and how well its
+ * table and move ordering worked. The counts add up the work of all the search threads.
+ *
+ * The bot fills the same object for every move and passes it to its SearchListener, so listeners
+ * must copy what they keep. Connect4Bot.getSearchStats gives a copy of the last move's.
+ */
+public class SearchStats {
+
+    //Where the move came from
+    public static final int SOURCE_BOOK = 0;
+    public static final int SOURCE_SOLVER = 1;
+    public static final int SOURCE_SEARCH = 2;
+
+    private int mSource;
+    private int mThreads;
+    private boolean mPonderHit;
+    private long mElapsedMillis;
+    private long mNodes;
+
+    private int mDepth;
+    private int mIterations;
+    private long mIterationMillis[];
+    private long mIterationsEndMillis;
+    private boolean mDeadlineAborted;
+
+    private long mCutoffs;
+    private long mFirstMoveCutoffs;
+
+    private long mTableProbes;
+    private long mTableHits;
+    private long mTableStores;
+    private long mTableCollisions;
+
+    /**
+     * @param maxIterations most iterations a search can complete, the number of cells of the board
+     */
+    SearchStats(int maxIterations) {
+        mIterationMillis = new long[maxIterations];
+    }
+
+    /**
+     * @param other stats to copy
+     */
+    public SearchStats(SearchStats other) {
+        mSource = other.mSource;
+        mThreads = other.mThreads;
+        mPonderHit = other.mPonderHit;
+        mElapsedMillis = other.mElapsedMillis;
+        mNodes = other.mNodes;
+        mDepth = other.mDepth;
+        mIterations = other.mIterations;
+        mIterationMillis = Arrays.copyOf(other.mIterationMillis, other.mIterationMillis.length);
+        mIterationsEndMillis = other.mIterationsEndMillis;
+        mDeadlineAborted = other.mDeadlineAborted;
+        mCutoffs = other.mCutoffs;
+        mFirstMoveCutoffs = other.mFirstMoveCutoffs;
+        mTableProbes = other.mTableProbes;
+        mTableHits = other.mTableHits;
+        mTableStores = other.mTableStores;
+        mTableCollisions = other.mTableCollisions;
+    }
+
+    /**
+     * Starts the stats of a new move
+     * @param source SOURCE_BOOK, SOURCE_SOLVER or SOURCE_SEARCH
+     * @param threads number of threads searching
+     * @param ponderHit true if the search goes on from pondering
+     */
+    void start(int source, int threads, boolean ponderHit) {
+        mSource = source;
+        mThreads = threads;
+        mPonderHit = ponderHit;
+        mElapsedMillis = 0;
+        mNodes = 0;
+        mDepth = 0;
+        mIterations = 0;
+        mIterationsEndMillis = 0;
+        mDeadlineAborted = false;
+        mCutoffs = 0;
+        mFirstMoveCutoffs = 0;
+        mTableProbes = 0;
+        mTableHits = 0;
+        mTableStores = 0;
+        mTableCollisions = 0;
+    }
+
+    /**
+     * Called when the calling thread completed an iteration
+     * @param elapsedMillis time since the move started
+     */
+    void addIteration(long elapsedMillis) {
+        if (mIterations < mIterationMillis.length) {
+            mIterationMillis[mIterations++] = elapsedMillis - mIterationsEndMillis;
+            mIterationsEndMillis = elapsedMillis;
+        }
+    }
+
+    void setDepth(int depth) {
+        mDepth = depth;
+    }
+
+    void setDeadlineAborted(boolean aborted) {
+        mDeadlineAborted = aborted;
+    }
+
+    void setElapsedMillis(long elapsedMillis) {
+        mElapsedMillis = elapsedMillis;
+    }
+
+    void addNodes(long nodes) {
+        mNodes += nodes;
+    }
+
+    /**
+     * Adds the counts of a search thread
+     * @param worker worker done searching the move
+     */
+    void addWorker(SearchWorker worker) {
+        mNodes += worker.getNodes();
+        mCutoffs += worker.getOrderer().getCutoffs();
+        mFirstMoveCutoffs += worker.getOrderer().getFirstMoveCutoffs();
+        mTableProbes += worker.getTableProbes();
+        mTableHits += worker.getTableHits();
+        mTableStores += worker.getTableStores();
+        mTableCollisions += worker.getTableCollisions();
+    }
+
+    /**
+     * @return SOURCE_BOOK, SOURCE_SOLVER or SOURCE_SEARCH
+     */
+    public int getSource() {
+        return mSource;
+    }
+
+    public int getThreads() {
+        return mThreads;
+    }
+
+    /**
+     * @return true if the search went on from the one started while the human was thinking
+     */
+    public boolean isPonderHit() {
+        return mPonderHit;
+    }
+
+    public long getElapsedMillis() {
+        return mElapsedMillis;
+    }
+
+    /**
+     * @return the number of positions searched, or solved if the move came from the solver
+     */
+    public long getNodes() {
+        return mNodes;
+    }
+
+    public long getNodesPerSecond() {
+        return mNodes * 1000 / Math.max(mElapsedMillis, 1);
+    }
+
+    /**
+     * @return the depth of the deepest iteration completed by any thread
+     */
+    public int getDepth() {
+        return mDepth;
+    }
+
+    /**
+     * @return the number of iterations the calling thread completed
+     */
+    public int getIterations() {
+        return mIterations;
+    }
+
+    /**
+     * @param iteration iteration of the calling thread, from 0
+     * @return the time the iteration took, the first one starting with the move
+     */
+    public long getIterationMillis(int iteration) {
+        return mIterationMillis[iteration];
+    }
+
+    /**
+     * @return true if the deadline stopped an iteration before it was done, its work is lost
+     */
+    public boolean isDeadlineAborted() {
+        return mDeadlineAborted;
+    }
+
+    public long getCutoffs() {
+        return mCutoffs;
+    }
+
+    /**
+     * @return the number of cutoffs caused by the first move tried, the better the move ordering the
+     * closer to getCutoffs()
+     */
+    public long getFirstMoveCutoffs() {
+        return mFirstMoveCutoffs;
+    }
+
+    public long getTableProbes() {
+        return mTableProbes;
+    }
+
+    public long getTableHits() {
+        return mTableHits;
+    }
+
+    public long getTableStores() {
+        return mTableStores;
+    }
+
+    /**
+     * @return the number of stores which replaced the entry of another position
+     */
+    public long getTableCollisions() {
+        return mTableCollisions;
+    }
+
+    public float getTableHitRate() {
+        return mTableHits / (float) Math.max(mTableProbes, 1);
+    }
+
+    public float getTableCollisionRate() {
+        return mTableCollisions / (float) Math.max(mTableStores, 1);
+    }
+
+    @Override
+    public String toString() {
+
+        StringBuilder builder = new StringBuilder();
+        builder.append(mSource == SOURCE_BOOK ? "book" : mSource == SOURCE_SOLVER ? "solver" : "search")
+                .append(" time: ").append(mElapsedMillis)
+                .append(" ms nodes: ").append(mNodes)
+                .append(" nps: ").append(getNodesPerSecond());
+        if (mSource == SOURCE_SEARCH) {
+            builder.append(" depth: ").append(mDepth)
+                    .append(" threads: ").append(mThreads)
+                    .append(mPonderHit ? " ponder hit" : "")
+                    .append(mDeadlineAborted ? " aborted" : "")
+                    .append(" iterations ms:");
+            for (int i = 0; i < mIterations; i++) {
+                builder.append(' ').append(mIterationMillis[i]);
+            }
+            builder.append(" cutoffs: ").append(mCutoffs)
+                    .append(" on first move: ").append(mFirstMoveCutoffs * 100 / Math.max(mCutoffs, 1))
+                    .append("% table hits: ").append(Math.round(getTableHitRate() * 100))
+                    .append("% collisions: ").append(Math.round(getTableCollisionRate() * 100))
+                    .append('%');
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,406 @@
+package edu.cmu.pocketsphinx.demo;
+
+/**
+ * One thread of the bot's search. Every worker has its own copy of the position, its own evaluator
+ * and move orderer, only the transposition table is shared with the other workers.
+ *
+ * Helper workers run their own iterative deepening loop until the bot stops them. They find the
+ * same positions as the main worker through the table, so whatever one of them searches saves
+ * work for the others.
+ */
+class SearchWorker implements Runnable {
+
+    //The stop flag, the deadline and the node limit are only checked, and the scheduler's pace
+    //kept, every so many nodes
+    private static final int STOP_CHECK_INTERVAL = 1024;
+
+    //Half width of the first aspiration window, and how much it grows after each failed search
+    private static final int ASPIRATION_WINDOW = Connect4Bot.SCORE_THREE_IN_A_ROW / 2;
+    private static final int ASPIRATION_GROWTH = 4;
+
+    private final Connect4Bot mBot;
+    private final TranspositionTable mTable;
+    private final Connect4Evaluator mEvaluator;
+    private final MoveOrderer mOrderer;
+
+    private final int mWidth;
+    private final Connect4Position mPosition;
+    private int mStartDepth;
+    private boolean mRootSymmetric;
+    private long mNodes;
+    private long mNodeLimit = Long.MAX_VALUE;
+    private boolean mAborted;
+    //Start of the current run while the scheduler throttles the search, see CpuScheduler.pace
+    private long mRunStart;
+
+    //Use of the table since the worker was prepared or resumed, a collision is a store replacing another position
+    private long mTableProbes;
+    private long mTableHits;
+    private long mTableStores;
+    private long mTableCollisions;
+
+    //Result of the last completed iteration
+    private int mBestMove;
+    private int mBestScore;
+    private final float mRatings[];
+    private final float mIterationRatings[];
+    private int mIterationBestMove;
+
+    /**
+     * @param bot bot the worker searches for
+     * @param geometry board the bot plays on
+     * @param table table shared by all the workers of the bot
+     * @param orderingSources sources used to order the moves, see MoveOrderer
+     */
+    SearchWorker(Connect4Bot bot, BoardGeometry geometry, TranspositionTable table, int orderingSources) {
+        mBot = bot;
+        mTable = table;
+        mWidth = geometry.getWidth();
+        mPosition = new Connect4Position(geometry);
+        mEvaluator = new Connect4Evaluator(geometry);
+        mOrderer = new MoveOrderer(geometry, orderingSources);
+        mRatings = new float[mWidth];
+        mIterationRatings = new float[mWidth];
+    }
+
+    /**
+     * Gets the worker ready to search a new position
+     * @param root position to search, the worker keeps its own copy
+     * @param startDepth depth of the first iteration of the helper loop
+     */
+    void prepare(Connect4Position root, int startDepth) {
+
+        mPosition.set(root);
+        mRootSymmetric = mPosition.isSymmetric();
+        mEvaluator.reset(mPosition);
+        mOrderer.newSearch();
+        mStartDepth = startDepth;
+        resetCounters();
+        mAborted = false;
+        mBestMove = -1;
+        mBestScore = 0;
+    }
+
+    /**
+     * Lets the worker search again after it was stopped, it keeps its position and results. Its
+     * counts start again, as the time of the move starts at the ponder hit.
+     */
+    void resume() {
+        mAborted = false;
+        resetCounters();
+    }
+
+    private void resetCounters() {
+        mNodes = 0;
+        mTableProbes = 0;
+        mTableHits = 0;
+        mTableStores = 0;
+        mTableCollisions = 0;
+        mOrderer.resetCounters();
+    }
+
+    /**
+     * @param nodeLimit number of nodes after which the search is aborted, counted from prepare or
+     *                  resume.
+     *                  It is checked with the stop flag, so the search always stops at the same node.
+     */
+    void setNodeLimit(long nodeLimit) {
+        mNodeLimit = nodeLimit;
+    }
+
+    /**
+     * Iterative deepening loop of a helper thread, it runs until the bot stops it
+     */
+    @Override
+    public void run() {
+
+        mBot.applyPriority();
+        for (int depth = mStartDepth; depth <= mPosition.getSpacesLeft(); depth++) {
+            if (!search(depth)) {
+                return;
+            }
+            mBot.onIterationDone(this, depth);
+            if (Connect4Bot.isWinScore(mBestScore)) {
+                return;
+            }
+        }
+    }
+
+    long getNodes() {
+        return mNodes;
+    }
+
+    long getTableProbes() {
+        return mTableProbes;
+    }
+
+    long getTableHits() {
+        return mTableHits;
+    }
+
+    long getTableStores() {
+        return mTableStores;
+    }
+
+    long getTableCollisions() {
+        return mTableCollisions;
+    }
+
+    MoveOrderer getOrderer() {
+        return mOrderer;
+    }
+
+    int getBestMove() {
+        return mBestMove;
+    }
+
+    int getBestScore() {
+        return mBestScore;
+    }
+
+    float[] getRatings() {
+        return mRatings;
+    }
+
+    /**
+     * Searches every move of the root position to a given depth and fills the ratings.
+     * Only the best move gets an exact rating, the others are upper bounds. If the position is its
+     * own mirror image the columns right of the center are rated from their mirrors instead.
+     *
+     * The search starts with a narrow window around the score of the previous iteration, which cuts
+     * off a lot more. If the score falls outside the window it is searched again with a wider one.
+     * @param depth how many moves to look ahead, including the root move
+     * @return false if the bot stopped the search before it was done
+     */
+    boolean search(int depth) {
+
+        int alpha = -Connect4Bot.SCORE_INFINITY;
+        int beta = Connect4Bot.SCORE_INFINITY;
+        int delta = ASPIRATION_WINDOW;
+        if (mBestMove != -1 && !Connect4Bot.isWinScore(mBestScore)) {
+            alpha = mBestScore - delta;
+            beta = mBestScore + delta;
+        }
+
+        while (true) {
+            int score = searchRoot(depth, alpha, beta);
+            if (mAborted) {
+                return false;
+            }
+
+            //A bound is only a failure if the window was narrowed on that side
+            if (score <= alpha && alpha > -Connect4Bot.SCORE_INFINITY) {
+                delta *= ASPIRATION_GROWTH;
+                alpha = Math.max(score - delta, -Connect4Bot.SCORE_INFINITY);
+            }
+            else if (score >= beta && beta < Connect4Bot.SCORE_INFINITY) {
+                delta *= ASPIRATION_GROWTH;
+                beta = Math.min(score + delta, Connect4Bot.SCORE_INFINITY);
+            }
+            else {
+                mBestMove = mIterationBestMove;
+                mBestScore = score;
+                System.arraycopy(mIterationRatings, 0, mRatings, 0, mWidth);
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Searches every move of the root position within a window
+     * @param depth how many moves to look ahead, including the root move
+     * @param alpha lower end of the window
+     * @param beta upper end of the window
+     * @return the score of the best move, or a bound on it if it is outside alpha and beta
+     */
+    private int searchRoot(int depth, int alpha, int beta) {
+
+        int best = -Connect4Bot.SCORE_INFINITY;
+        float ratings[] = mIterationRatings;
+        mIterationBestMove = -1;
+
+        for (int i = 0; i < mWidth; i++)
+            ratings[i] = Connect4Bot.VERY_NEGATIVE; //Full columns keep this rating
+
+        //The best move of the previous iteration is searched first
+        int count = mOrderer.orderMoves(mPosition, 0, mBestMove);
+        int moves[] = mOrderer.getMoves(0);
+        for (int k = 0; k < count; k++) {
+            int i = moves[k];
+            if (mRootSymmetric && i > mWidth - 1 - i) {
+                continue;
+            }
+
+            play(i);
+            int score = -negamax(depth - 1, -beta, -Math.max(alpha, best), 1);
+            undo(i);
+
+            if (mAborted) {
+                return 0;
+            }
+
+            ratings[i] = Connect4Bot.toRating(score);
+            if (score > best) {
+                best = score;
+                mIterationBestMove = i;
+                if (score >= beta) {
+                    break;
+                }
+            }
+        }
+
+        if (mRootSymmetric) {
+            for (int i = (mWidth + 1) / 2; i < mWidth; i++) {
+                ratings[i] = ratings[mWidth - 1 - i];
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Plays a move on the position and the evaluator
+     * @param col column of the move
+     */
+    private void play(int col) {
+        int player = mPosition.getPlayer();
+        mEvaluator.add(col, mPosition.play(col), player);
+    }
+
+    /**
+     * Takes back a move from the position and the evaluator
+     * @param col column of the move
+     */
+    private void undo(int col) {
+        int row = mPosition.undo(col);
+        mEvaluator.remove(col, row, mPosition.getPlayer());
+    }
+
+    /**
+     * Scores the position with a negamax alpha-beta search. Scores are always from the point of view
+     * of the player to move. Once a move scores at least beta the other moves can't change the
+     * result and are skipped.
+     * @param depth how many moves to look ahead
+     * @param alpha score the player to move is already sure to get
+     * @param beta score the opponent is already sure to hold the player to
+     * @param ply how many moves were played since the root
+     * @return the score, or a bound on it if it is outside alpha and beta. Meaningless if the
+     * search was aborted.
+     */
+    private int negamax(int depth, int alpha, int beta, int ply) {
+
+        Connect4Position position = mPosition;
+
+        if (++mNodes % STOP_CHECK_INTERVAL == 0) {
+            mRunStart = mBot.pace(mRunStart);
+            if (mNodes >= mNodeLimit || mBot.isStopped()) {
+                mAborted = true;
+            }
+        }
+        if (mAborted) {
+            return 0;
+        }
+
+        //Only the player who just moved can have made four in a row
+        if (position.lastMoveWon()) {
+            return -(Connect4Bot.SCORE_WIN - ply);
+        }
+
+        if (position.getSpacesLeft() == 0) {
+            return 0;
+        }
+
+        if (depth == 0) {
+            return mEvaluator.getScore(position.getPlayer());
+        }
+
+        //A position and its mirror image share their entry, moves are stored for the canonical one
+        long hash = position.getCanonicalHash();
+        boolean mirrored = position.isCanonicalMirrored();
+        long entry = mTable.probe(hash);
+        int tableMove = -1;
+        mTableProbes++;
+        if (entry != 0) {
+            mTableHits++;
+            tableMove = TranspositionTable.getMove(entry);
+            if (mirrored && tableMove != TranspositionTable.NO_MOVE) {
+                tableMove = mWidth - 1 - tableMove;
+            }
+            if (TranspositionTable.getDepth(entry) >= depth) {
+                int score = scoreFromTable(TranspositionTable.getScore(entry), ply);
+                int bound = TranspositionTable.getBound(entry);
+                if (bound == TranspositionTable.BOUND_EXACT
+                        || (bound == TranspositionTable.BOUND_LOWER && score >= beta)
+                        || (bound == TranspositionTable.BOUND_UPPER && score <= alpha)) {
+                    return score;
+                }
+            }
+        }
+
+        int alphaOrig = alpha;
+        int best = -Connect4Bot.SCORE_INFINITY;
+        int bestMove = TranspositionTable.NO_MOVE;
+        int count = mOrderer.orderMoves(position, ply, tableMove);
+        int moves[] = mOrderer.getMoves(ply);
+        for (int k = 0; k < count; k++) {
+            int i = moves[k];
+
+            play(i);
+            int score = -negamax(depth - 1, -beta, -alpha, ply + 1);
+            undo(i);
+
+            //Scores of an aborted search must not reach the table
+            if (mAborted) {
+                return 0;
+            }
+
+            if (score > best) {
+                best = score;
+                bestMove = i;
+                if (score > alpha) {
+                    alpha = score;
+                    if (alpha >= beta) {
+                        mOrderer.onCutoff(position, ply, i, depth, k);
+                        break;
+                    }
+                }
+            }
+        }
+
+        int bound;
+        if (best <= alphaOrig)
+            bound = TranspositionTable.BOUND_UPPER;
+        else if (best >= beta)
+            bound = TranspositionTable.BOUND_LOWER;
+        else
+            bound = TranspositionTable.BOUND_EXACT;
+        if (mirrored && bestMove != TranspositionTable.NO_MOVE) {
+            bestMove = mWidth - 1 - bestMove;
+        }
+        mTableStores++;
+        if (mTable.store(hash, scoreToTable(best, ply), depth, bound, bestMove)) {
+            mTableCollisions++;
+        }
+
+        return best;
+    }
+
+    /**
+     * Win scores count the plies from the root, the table stores them counting from the position
+     * itself so they stay right when the position is reached through another path.
+     */
+    private static int scoreToTable(int score, int ply) {
+        if (score >= Connect4Bot.SCORE_WIN_MIN)
+            return score + ply;
+        else if (score <= -Connect4Bot.SCORE_WIN_MIN)
+            return score - ply;
+        return score;
+    }
+
+    private static int scoreFromTable(int score, int ply) {
+        if (score >= Connect4Bot.SCORE_WIN_MIN)
+            return score - ply;
+        else if (score <= -Connect4Bot.SCORE_WIN_MIN)
+            return score + ply;
+        return score;
+    }
+}
@@ -0,0 +1,54 @@
+package edu.cmu.pocketsphinx.demo;
+
+/**
+ * Keeps track of the time the bot is allowed to spend on a move.
+ *
+ * There are two limits. The soft limit is checked between iterations of the search, no new
+ * iteration starts once it has passed. The hard limit is the deadline, the search polls it while
+ * searching and gives up on the current iteration as soon as it is reached.
+ */
+public class TimeManager {
+
+    //A limit in milliseconds which is never reached
+    public static final long NO_LIMIT = Long.MAX_VALUE / 4000000;
+
+    private long mStart;
+    private long mSoftLimit;
+    private long mDeadline;
+
+    public TimeManager() {
+        start(NO_LIMIT, NO_LIMIT);
+    }
+
+    /**
+     * Starts timing a move
+     * @param softLimitMillis time after which no new iteration starts
+     * @param hardLimitMillis time after which the search is aborted
+     */
+    public void start(long softLimitMillis, long hardLimitMillis) {
+        mStart = System.nanoTime();
+        mSoftLimit = mStart + softLimitMillis * 1000000;
+        mDeadline = mStart + hardLimitMillis * 1000000;
+    }
+
+    /**
+     * @return the milliseconds since the move started
+     */
+    public long getElapsedMillis() {
+        return (System.nanoTime() - mStart) / 1000000;
+    }
+
+    /**
+     * @return true if a new iteration can still be started
+     */
+    public boolean canStartIteration() {
+        return System.nanoTime() - mSoftLimit < 0;
+    }
+
+    /**
+     * @return true once the deadline has passed
+     */
+    public boolean isTimeUp() {
+        return System.nanoTime() - mDeadline >= 0;
+    }
+}
@@ -0,0 +1,148 @@
+package edu.cmu.pocketsphinx.demo;
+
+import java.util.Arrays;
+
+/**
+ * Fixed size hash table remembering the results of positions the bot has already searched.
+ *
+ * The table is split in buckets of two entries. The first entry keeps the deepest result seen for
+ * the bucket in the current search, the second one is always replaced. Every entry is two longs, the
+ * canonical Zobrist hash of the position and its packed data, so the whole table is a single long array.
+ *
+ * The table is shared by all the search threads without any locking. The hash is stored xored with
+ * the data, so an entry torn by two threads writing it at the same time doesn't match its position
+ * anymore and reads as a miss instead of a wrong result.
+ */
+public class TranspositionTable {
+
+    //Bound types, a lower bound failed high and an upper bound failed low
+    public static final int BOUND_LOWER = 1;
+    public static final int BOUND_UPPER = 2;
+    public static final int BOUND_EXACT = BOUND_LOWER | BOUND_UPPER;
+
+    public static final int NO_MOVE = 0xF;
+
+    private static final int LONGS_PER_ENTRY = 2;
+    private static final int ENTRIES_PER_BUCKET = 2;
+    private static final int BYTES_PER_BUCKET = LONGS_PER_ENTRY * ENTRIES_PER_BUCKET * 8;
+
+    //Layout of the data long
+    private static final int DEPTH_SHIFT = 32;
+    private static final int BOUND_SHIFT = 40;
+    private static final int MOVE_SHIFT = 42;
+    private static final int AGE_SHIFT = 46;
+    private static final int AGE_MASK = 0xFF;
+
+    private final long mTable[];
+    private final int mBucketMask;
+    private int mAge;
+
+    /**
+     * @param memoryBytes memory budget of the table, it is rounded down to a power of two buckets
+     */
+    public TranspositionTable(int memoryBytes) {
+
+        int buckets = Integer.highestOneBit(Math.max(memoryBytes / BYTES_PER_BUCKET, 1));
+        mTable = new long[buckets * LONGS_PER_ENTRY * ENTRIES_PER_BUCKET];
+        mBucketMask = buckets - 1;
+    }
+
+    /**
+     * @return the number of bytes used by the entries
+     */
+    public int getMemoryBytes() {
+        return mTable.length * 8;
+    }
+
+    /**
+     * Empties the table
+     */
+    public void clear() {
+        Arrays.fill(mTable, 0);
+        mAge = 0;
+    }
+
+    /**
+     * Called at the start of every move, deep entries of older moves can then be replaced
+     */
+    public void newSearch() {
+        mAge = (mAge + 1) & AGE_MASK;
+    }
+
+    /**
+     * Looks up a position
+     * @param hash Zobrist hash of the position
+     * @return the packed data of the entry, or 0 if the position isn't in the table
+     */
+    public long probe(long hash) {
+
+        int i = bucketIndex(hash);
+        long data = mTable[i + 1];
+        if ((mTable[i] ^ data) == hash && data != 0) {
+            return data;
+        }
+        data = mTable[i + 3];
+        if ((mTable[i + 2] ^ data) == hash && data != 0) {
+            return data;
+        }
+        return 0;
+    }
+
+    /**
+     * Stores the result of a search
+     * @param hash Zobrist hash of the position
+     * @param score score of the position
+     * @param depth depth it was searched to
+     * @param bound BOUND_LOWER, BOUND_UPPER or BOUND_EXACT
+     * @param move best move found, or NO_MOVE
+     * @return true if the entry of another position was replaced to make room
+     */
+    public boolean store(long hash, int score, int depth, int bound, int move) {
+
+        long data = (score & 0xFFFFFFFFL)
+                | ((long) depth << DEPTH_SHIFT)
+                | ((long) bound << BOUND_SHIFT)
+                | ((long) move << MOVE_SHIFT)
+                | ((long) mAge << AGE_SHIFT);
+
+        int i = bucketIndex(hash);
+        long deepest = mTable[i + 1];
+        boolean same = (mTable[i] ^ deepest) == hash;
+        if (same || deepest == 0 || getAge(deepest) != mAge || getDepth(deepest) <= depth) {
+            mTable[i] = hash ^ data;
+            mTable[i + 1] = data;
+            return !same && deepest != 0;
+        }
+        else {
+            long replaced = mTable[i + 3];
+            boolean other = replaced != 0 && (mTable[i + 2] ^ replaced) != hash;
+            mTable[i + 2] = hash ^ data;
+            mTable[i + 3] = data;
+            return other;
+        }
+    }
+
+    private int bucketIndex(long hash) {
+        return ((int) hash & mBucketMask) * LONGS_PER_ENTRY * ENTRIES_PER_BUCKET;
+    }
+
+    public static int getScore(long data) {
+        return (int) data;
+    }
+
+    public static int getDepth(long data) {
+        return (int) (data >>> DEPTH_SHIFT) & 0xFF;
+    }
+
+    public static int getBound(long data) {
+        return (int) (data >>> BOUND_SHIFT) & 0x3;
+    }
+
+    public static int getMove(long data) {
+        return (int) (data >>> MOVE_SHIFT) & 0xF;
+    }
+
+    private static int getAge(long data) {
+        return (int) (data >>> AGE_SHIFT) & AGE_MASK;
+    }
+}
@@ -0,0 +1,126 @@
+package edu.cmu.pocketsphinx.demo;
+
+/**
+ * Every window of cells a player can win in on a board, and the windows through every cell. Each
+ * BoardGeometry builds its own.
+ *
+ * The tables are flat int arrays built once, so walking them needs no bounds checks. A cell is
+ * numbered x * height + y. The cells of window w are getWindowCells()[w * length] to
+ * getWindowCells()[w * length + length - 1], in order along the line. The windows through cell c
+ * are getCellWindows()[getCellWindowStart()[c]] to getCellWindows()[getCellWindowStart()[c + 1] - 1].
+ */
+final class WinningLines {
+
+    //Horizontal, vertical, diagonal to the right and diagonal to the left, the latter walked from
+    //the bottom right like the model used to scan it, so a win is reported from the same end
+    private static final int DIRECTIONS[][] = {{1, 0}, {0, 1}, {1, 1}, {-1, 1}};
+
+    private final int mWidth;
+    private final int mHeight;
+    private final int mLength;
+    private final int mCellCount;
+
+    private final int mWindowCount;
+    private final int mWindowCells[];
+    private final int mCellWindowStart[];
+    private final int mCellWindows[];
+
+    WinningLines(BoardGeometry geometry) {
+
+        mWidth = geometry.getWidth();
+        mHeight = geometry.getHeight();
+        mLength = geometry.getWinLength();
+        mCellCount = mWidth * mHeight;
+
+        int windows[] = new int[mCellCount * DIRECTIONS.length * mLength];
+        int cellCounts[] = new int[mCellCount];
+        int count = 0;
+
+        for (int[] direction : DIRECTIONS) {
+            for (int i = 0; i < mWidth; i++) {
+                //Windows along a line are listed in the order they are walked
+                int x = direction[0] < 0 ? mWidth - 1 - i : i;
+                for (int y = 0; y < mHeight; y++) {
+                    int endX = x + (mLength - 1) * direction[0];
+                    int endY = y + (mLength - 1) * direction[1];
+                    if (endX < 0 || endX >= mWidth || endY < 0 || endY >= mHeight) {
+                        continue;
+                    }
+
+                    for (int k = 0; k < mLength; k++) {
+                        int cell = cellOf(x + k * direction[0], y + k * direction[1]);
+                        windows[count * mLength + k] = cell;
+                        cellCounts[cell]++;
+                    }
+                    count++;
+                }
+            }
+        }
+
+        mWindowCount = count;
+        mWindowCells = new int[count * mLength];
+        System.arraycopy(windows, 0, mWindowCells, 0, count * mLength);
+
+        mCellWindowStart = new int[mCellCount + 1];
+        for (int cell = 0; cell < mCellCount; cell++) {
+            mCellWindowStart[cell + 1] = mCellWindowStart[cell] + cellCounts[cell];
+        }
+        mCellWindows = new int[mCellWindowStart[mCellCount]];
+        int next[] = new int[mCellCount];
+        System.arraycopy(mCellWindowStart, 0, next, 0, mCellCount);
+        for (int w = 0; w < count; w++) {
+            for (int k = 0; k < mLength; k++) {
+                int cell = mWindowCells[w * mLength + k];
+                mCellWindows[next[cell]++] = w;
+            }
+        }
+    }
+
+    /**
+     * @return the number of balls in a row needed to win, the number of cells of a window
+     */
+    int getLength() {
+        return mLength;
+    }
+
+    int getWindowCount() {
+        return mWindowCount;
+    }
+
+    int[] getWindowCells() {
+        return mWindowCells;
+    }
+
+    int[] getCellWindowStart() {
+        return mCellWindowStart;
+    }
+
+    int[] getCellWindows() {
+        return mCellWindows;
+    }
+
+    /**
+     * @param x column of the cell
+     * @param y row of the cell
+     * @return the number of the cell in the tables
+     */
+    int cellOf(int x, int y) {
+        return x * mHeight + y;
+    }
+
+    /**
+     * @param cell number of a cell
+     * @return the column of the cell
+     */
+    int cellX(int cell) {
+        return cell / mHeight;
+    }
+
+    /**
+     * @param cell number of a cell
+     * @return the row of the cell
+     */
+    int cellY(int cell) {
+        return cell % mHeight;
+    }
+}
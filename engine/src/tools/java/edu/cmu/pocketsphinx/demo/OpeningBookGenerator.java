@@ -0,0 +1,135 @@
+package edu.cmu.pocketsphinx.demo;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Offline tool writing the opening book read by OpeningBook. It isn't used by the app, it is run by
+ * the generateOpeningBook task of the engine module.
+ *
+ * For each player the book follows the games where that player only plays the solver's best moves
+ * and the opponent plays anything, so the bot can always answer from the book whichever side it
+ * plays. Moves only keep the result of the game, a win is not made as quick as possible. Positions
+ * the player following the book loses anyway are left out, along with the games following them.
+ *
+ * Usage: OpeningBookGenerator output-file [plies] [table-megabytes]
+ */
+public class OpeningBookGenerator {
+
+    private static final int WIDTH = OpeningBook.GEOMETRY.getWidth();
+
+    private static final int DEFAULT_PLIES = 12;
+    private static final int DEFAULT_TABLE_MEGABYTES = 256;
+    private static final int PROGRESS_INTERVAL = 1000;
+
+    private final Connect4Solver mSolver;
+    private final int mPlies;
+
+    //Best move of every position by key, mirrored positions are stored under the smallest key
+    private final Map<Long, Integer> mMoves = new TreeMap<Long, Integer>();
+
+    private final long mStartTime = System.currentTimeMillis();
+
+    private OpeningBookGenerator(int plies, int tableMegabytes) {
+        mSolver = new Connect4Solver(tableMegabytes * 1024 * 1024);
+        mPlies = plies;
+    }
+
+    public static void main(String args[]) throws IOException {
+
+        if (args.length < 1) {
+            System.err.println("Usage: OpeningBookGenerator output-file [plies] [table-megabytes]");
+            System.exit(1);
+        }
+        int plies = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_PLIES;
+        int tableMegabytes = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_TABLE_MEGABYTES;
+
+        OpeningBookGenerator generator = new OpeningBookGenerator(plies, tableMegabytes);
+        generator.generate();
+        generator.write(args[0]);
+    }
+
+    private void generate() {
+        Connect4Position position = new Connect4Position(OpeningBook.GEOMETRY);
+        generate(position, Connect4Position.PLAYER_RED);
+        generate(position, Connect4Position.PLAYER_YELLOW);
+    }
+
+    /**
+     * Adds the positions reachable when one player follows the book
+     * @param position position being played on
+     * @param bookPlayer player following the book
+     */
+    private void generate(Connect4Position position, int bookPlayer) {
+
+        if (position.getMoves() >= mPlies) {
+            return;
+        }
+
+        if (position.getPlayer() != bookPlayer) {
+            for (int col = 0; col < WIDTH; col++) {
+                if (position.canPlay(col)) {
+                    position.play(col);
+                    if (!position.lastMoveWon()) {
+                        generate(position, bookPlayer);
+                    }
+                    position.undo(col);
+                }
+            }
+            return;
+        }
+
+        long key = position.getKey();
+        long mirrorKey = position.getMirrorKey();
+        boolean mirrored = mirrorKey < key;
+        Integer known = mMoves.get(mirrored ? mirrorKey : key);
+
+        int move;
+        if (known != null) {
+            move = mirrored ? WIDTH - 1 - known : known;
+        }
+        else {
+            //Lost positions are left to the bot's search, it makes the loss harder to find
+            if (mSolver.solve(position, true) < 0) {
+                return;
+            }
+            move = mSolver.getBestMove(position, true);
+            mMoves.put(mirrored ? mirrorKey : key, mirrored ? WIDTH - 1 - move : move);
+            if (mMoves.size() % PROGRESS_INTERVAL == 0) {
+                System.out.println(mMoves.size() + " positions, "
+                        + (System.currentTimeMillis() - mStartTime) / 1000 + "s");
+            }
+        }
+
+        position.play(move);
+        if (!position.lastMoveWon()) {
+            generate(position, bookPlayer);
+        }
+        position.undo(move);
+    }
+
+    private void write(String fileName) throws IOException {
+
+        DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(fileName)));
+        try {
+            output.writeInt(OpeningBook.MAGIC);
+            output.writeInt(OpeningBook.VERSION);
+            output.writeInt(WIDTH);
+            output.writeInt(OpeningBook.GEOMETRY.getHeight());
+            output.writeInt(mPlies);
+            output.writeInt(mMoves.size());
+            //The map is sorted by key
+            for (Map.Entry<Long, Integer> entry : mMoves.entrySet()) {
+                output.writeLong((entry.getKey() << OpeningBook.MOVE_BITS) | entry.getValue());
+            }
+        }
+        finally {
+            output.close();
+        }
+        System.out.println("Wrote " + mMoves.size() + " positions to " + fileName);
+    }
+}
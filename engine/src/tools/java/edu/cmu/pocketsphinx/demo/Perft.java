@@ -0,0 +1,209 @@
+package edu.cmu.pocketsphinx.demo;
+
+import java.util.Random;
+
+/**
+ * Offline tool checking that the bot's positions still play and detect wins exactly as before,
+ * to be run after changing them for speed. It isn't used by the app, it is run by the perft task of
+ * the engine module, which the engine's check task depends on.
+ *
+ * Perft counts the games of exactly a given number of moves from a position, a game stopping at its
+ * winning move. The counts of a set of reference positions were checked against the game's model
+ * and must not change. The win check of the positions is also compared with
+ * Connect4Model.checkForWinner on random games on several boards, and positions loaded from the
+ * model's board and snapshots with the positions played move by move.
+ *
+ * Usage: Perft [random-positions]
+ *        Perft board moves depth
+ *
+ * Moves are written as columns from 1, in base 36 on boards wider than 9. The second form prints
+ * the counts of one position up to the depth, and how fast they were counted.
+ */
+public class Perft {
+
+    private static final int DEFAULT_RANDOM_POSITIONS = 1000000;
+
+    //Board, moves and the counts from depth 1 up
+    private static final Object REFERENCES[][] = {
+            {"7x6c4", "", new long[]{7L, 49L, 343L, 2401L, 16807L, 117649L, 823536L, 5673234L, 39394572L}},
+            {"7x6c4", "4453", new long[]{7L, 49L, 343L, 2317L, 16218L, 108118L, 749587L, 4968454L, 33797929L}},
+            {"7x6c4", "66633111637545", new long[]{7L, 49L, 342L, 2331L, 15437L, 100442L, 636602L, 3881734L,
+                    23392763L}},
+            {"7x6c4", "7354432665354323562735741244", new long[]{5L, 24L, 83L, 334L, 936L, 3074L, 6831L, 15682L,
+                    22508L, 24982L, 6336L, 0L}},
+            {"8x7c4", "", new long[]{8L, 64L, 512L, 4096L, 32768L, 262144L, 2097152L, 16553656L}},
+            {"7x6c5", "", new long[]{7L, 49L, 343L, 2401L, 16807L, 117649L, 823536L, 5764458L}},
+            {"9x7c5", "55", new long[]{9L, 81L, 729L, 6561L, 59049L, 531440L, 4782912L}},
+            {"15x7c4", "", new long[]{15L, 225L, 3375L, 50625L, 759375L, 11390625L}},
+            {"5x4c3", "", new long[]{5L, 25L, 125L, 625L, 3120L, 14020L, 65330L, 269032L, 1122030L, 3986884L}},
+    };
+
+    //Boards the win check is compared on, including one needing two longs per bitboard
+    private static final String CHECKED_BOARDS[] = {"7x6c4", "8x7c4", "9x7c5", "15x7c4", "5x4c3"};
+
+    //Every so many moves the position is also loaded from the model's board
+    private static final int LOAD_INTERVAL = 7;
+
+    public static void main(String args[]) {
+
+        if (args.length == 3) {
+            Connect4Position position = parsePosition(BoardGeometry.parse(args[0]), args[1]);
+            int depth = Integer.parseInt(args[2]);
+            for (int d = 1; d <= depth; d++) {
+                long start = System.nanoTime();
+                long count = perft(position, d);
+                long nanos = Math.max(System.nanoTime() - start, 1);
+                System.out.println("depth " + d + ": " + count + " in " + nanos / 1000000 + " ms, "
+                        + count * 1000000 / nanos + " kgames/s");
+            }
+            return;
+        }
+
+        int randomPositions = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_RANDOM_POSITIONS;
+        boolean passed = checkReferences();
+        for (String board : CHECKED_BOARDS) {
+            passed &= checkWins(BoardGeometry.parse(board), randomPositions / CHECKED_BOARDS.length);
+        }
+        System.out.println(passed ? "All checks passed" : "FAILED");
+        if (!passed) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * @param position position to count the games from, it is left as it was
+     * @param depth number of moves of the games
+     * @return the number of games of exactly depth moves
+     */
+    public static long perft(Connect4Position position, int depth) {
+
+        long count = 0;
+        int width = position.getGeometry().getWidth();
+        for (int col = 0; col < width; col++) {
+            if (position.canPlay(col)) {
+                position.play(col);
+                if (depth == 1) {
+                    count++;
+                }
+                else if (!position.lastMoveWon()) {
+                    count += perft(position, depth - 1);
+                }
+                position.undo(col);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @param geometry board of the position
+     * @param moves columns played from the empty board, from 1
+     * @return the position
+     */
+    private static Connect4Position parsePosition(BoardGeometry geometry, String moves) {
+
+        Connect4Position position = new Connect4Position(geometry);
+        for (int i = 0; i < moves.length(); i++) {
+            int col = Character.digit(moves.charAt(i), 36) - 1;
+            if (col < 0 || !position.canPlay(col)) {
+                throw new IllegalArgumentException("Can't play " + moves.charAt(i) + " in " + moves);
+            }
+            position.play(col);
+        }
+        return position;
+    }
+
+    /**
+     * @return true if every reference position still has its counts
+     */
+    private static boolean checkReferences() {
+
+        boolean passed = true;
+        for (Object reference[] : REFERENCES) {
+            String board = (String) reference[0];
+            String moves = (String) reference[1];
+            long counts[] = (long[]) reference[2];
+            Connect4Position position = parsePosition(BoardGeometry.parse(board), moves);
+
+            long total = 0;
+            long start = System.nanoTime();
+            for (int d = 1; d <= counts.length; d++) {
+                long count = perft(position, d);
+                total += count;
+                if (count != counts[d - 1]) {
+                    System.out.println(board + " " + moves + " depth " + d + ": " + count + " instead of "
+                            + counts[d - 1]);
+                    passed = false;
+                }
+            }
+            long nanos = Math.max(System.nanoTime() - start, 1);
+            System.out.println(board + " '" + moves + "' to depth " + counts.length + ": " + total
+                    + " games, " + total * 1000000 / nanos + " kgames/s");
+        }
+        return passed;
+    }
+
+    /**
+     * Plays random games on a board and compares the win check of the bot's positions with the
+     * model's after every move, for the position played move by move and loaded from the board and
+     * from a snapshot
+     * @param geometry board to play on
+     * @param positions number of positions to compare
+     * @return true if they always agreed
+     */
+    private static boolean checkWins(BoardGeometry geometry, int positions) {
+
+        Random random = new Random(geometry.hashCode());
+        Connect4Model model = new Connect4Model(geometry);
+        Connect4Position position = new Connect4Position(geometry);
+        Connect4Position loaded = new Connect4Position(geometry);
+        int games = 0;
+        int wins = 0;
+        int errors = 0;
+
+        for (int checked = 0; checked < positions; games++) {
+            model.reset(geometry);
+            position.setBoard(model.getBoard(), Connect4Model.Color.RED);
+
+            boolean over = false;
+            while (!over && checked < positions) {
+                int col = random.nextInt(geometry.getWidth());
+                if (!position.canPlay(col)) {
+                    continue;
+                }
+                int player = position.getPlayer();
+                Connect4Model.Color color = player == Connect4Position.PLAYER_RED
+                        ? Connect4Model.Color.RED : Connect4Model.Color.YELLOW;
+                model.addBall(col, color);
+                position.play(col);
+                checked++;
+
+                //The model also reports a full board, only a winning move counts
+                boolean modelWon = model.checkForWinner() && model.getWinningMove() != null;
+                boolean won = position.lastMoveWon();
+                if (won != modelWon || position.hasWon(player) != modelWon) {
+                    errors++;
+                }
+                if (checked % LOAD_INTERVAL == 0 || modelWon) {
+                    Connect4Model.Color toMove = position.getPlayer() == Connect4Position.PLAYER_RED
+                            ? Connect4Model.Color.RED : Connect4Model.Color.YELLOW;
+                    loaded.setBoard(model.getBoard(), toMove);
+                    if (loaded.hasWon(player) != modelWon || loaded.getHash() != position.getHash()) {
+                        errors++;
+                    }
+                    loaded.setSnapshot(model.getSnapshot(), toMove);
+                    if (loaded.hasWon(player) != modelWon || loaded.getHash() != position.getHash()) {
+                        errors++;
+                    }
+                }
+                if (modelWon) {
+                    wins++;
+                }
+                over = modelWon || position.getSpacesLeft() == 0;
+            }
+        }
+
+        System.out.println(geometry + ": " + positions + " positions of " + games + " games, " + wins
+                + " wins, " + errors + " differences from the model");
+        return errors == 0;
+    }
+}
@@ -0,0 +1,362 @@
+package edu.cmu.pocketsphinx.demo;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Offline tool playing two bot configurations against each other, to tell whether a change to the
+ * bot makes it stronger or only faster. It isn't used by the app, it is run by the selfPlay task of
+ * the engine module.
+ *
+ * Every game starts from a few random moves. Each opening is played twice with the colors swapped,
+ * so neither configuration profits from a lucky opening or from moving first. Games are played in
+ * parallel, every game by its own pair of single threaded bots. The result is the score of the
+ * first configuration with the Elo difference it implies, the positions searched per second and
+ * the percentiles of the time taken per move.
+ *
+ * Usage: SelfPlayTournament games config-a config-b [opening-plies] [parallel-games] [board]
+ *
+ * A config is a comma separated list of time=move milliseconds, depth=deepest iteration,
+ * nodes=positions searched per move, table=table megabytes, sources=MoveOrderer sources and
+ * solver=empty cells solved exactly, for example time=200,solver=0. With depth or nodes the time is
+ * only a cap, time=0 removes it, see Difficulty.
+ * The board is written as in BoardGeometry.parse, 7x6c4 by default.
+ */
+public class SelfPlayTournament {
+
+    private static final int DEFAULT_OPENING_PLIES = 4;
+    private static final int PROGRESS_INTERVAL = 100;
+
+    //Quantile of the normal distribution for 95% confidence
+    private static final double CONFIDENCE_Z = 1.96;
+
+    private final BoardGeometry mGeometry;
+    private final BotConfig mConfigs[];
+    private final int mGames;
+    private final int mOpeningPlies;
+    private final int mParallelGames;
+
+    private final AtomicInteger mNextGame = new AtomicInteger();
+
+    //Results from the point of view of the first configuration
+    private final AtomicInteger mWins = new AtomicInteger();
+    private final AtomicInteger mDraws = new AtomicInteger();
+    private final AtomicInteger mLosses = new AtomicInteger();
+
+    private final long mStartTime = System.currentTimeMillis();
+
+    private SelfPlayTournament(BoardGeometry geometry, BotConfig configs[], int games, int openingPlies,
+                               int parallelGames) {
+        mGeometry = geometry;
+        mConfigs = configs;
+        mGames = games;
+        mOpeningPlies = openingPlies;
+        mParallelGames = parallelGames;
+    }
+
+    public static void main(String args[]) throws InterruptedException {
+
+        if (args.length < 3) {
+            System.err.println("Usage: SelfPlayTournament games config-a config-b [opening-plies] "
+                    + "[parallel-games] [board]");
+            System.exit(1);
+        }
+        int games = Integer.parseInt(args[0]);
+        BotConfig configs[] = {BotConfig.parse(args[1]), BotConfig.parse(args[2])};
+        int openingPlies = args.length > 3 ? Integer.parseInt(args[3]) : DEFAULT_OPENING_PLIES;
+        int parallelGames = args.length > 4 ? Integer.parseInt(args[4])
+                : Runtime.getRuntime().availableProcessors();
+        BoardGeometry geometry = args.length > 5 ? BoardGeometry.parse(args[5]) : BoardGeometry.STANDARD;
+
+        SelfPlayTournament tournament = new SelfPlayTournament(geometry, configs, games, openingPlies,
+                parallelGames);
+        tournament.play();
+        tournament.report();
+    }
+
+    private void play() throws InterruptedException {
+
+        ExecutorService executor = Executors.newFixedThreadPool(mParallelGames);
+        for (int i = 0; i < mParallelGames; i++) {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    playGames();
+                }
+            });
+        }
+        executor.shutdown();
+        executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Runs on every thread of the tournament, plays games until all of them were played
+     */
+    private void playGames() {
+
+        Connect4Bot bots[] = {mConfigs[0].createBot(mGeometry), mConfigs[1].createBot(mGeometry)};
+        Game game = new Game(mGeometry);
+
+        for (int index = mNextGame.getAndIncrement(); index < mGames; index = mNextGame.getAndIncrement()) {
+            //Both games of an opening have the same seed, the first configuration starts the even one
+            int first = index % 2;
+            //Every game starts from empty tables, so games with limited levels can be replayed
+            bots[0].clear();
+            bots[1].clear();
+            int winner = game.play(bots[first], bots[1 - first], mConfigs[first], mConfigs[1 - first],
+                    new Random(index / 2), mOpeningPlies);
+
+            if (winner == Connect4Position.NO_PLAYER) {
+                mDraws.incrementAndGet();
+            }
+            else if ((winner == Connect4Position.PLAYER_RED) == (first == 0)) {
+                mWins.incrementAndGet();
+            }
+            else {
+                mLosses.incrementAndGet();
+            }
+
+            int played = mWins.get() + mDraws.get() + mLosses.get();
+            if (played % PROGRESS_INTERVAL == 0) {
+                System.out.println(played + " games, +" + mWins.get() + " =" + mDraws.get()
+                        + " -" + mLosses.get() + ", " + (System.currentTimeMillis() - mStartTime) / 1000 + " s");
+            }
+        }
+
+        for (Connect4Bot bot : bots) {
+            bot.shutdown();
+        }
+    }
+
+    private void report() {
+
+        int wins = mWins.get();
+        int draws = mDraws.get();
+        int losses = mLosses.get();
+        int games = wins + draws + losses;
+
+        System.out.println(mGeometry + ", " + games + " games in "
+                + (System.currentTimeMillis() - mStartTime) / 1000 + " s");
+        System.out.println("A: " + mConfigs[0] + " against B: " + mConfigs[1]);
+        System.out.println("A wins " + wins + ", draws " + draws + ", loses " + losses);
+
+        //Elo difference of the score, the error is the 95% confidence interval of the mean score
+        double score = (wins + draws / 2.0) / games;
+        double deviation = Math.sqrt((wins * square(1 - score) + draws * square(0.5 - score)
+                + losses * square(score)) / games);
+        double error = CONFIDENCE_Z * deviation / Math.sqrt(games);
+        double elo = toElo(score);
+        double eloError = (toElo(Math.min(score + error, 1)) - toElo(Math.max(score - error, 0))) / 2;
+        System.out.println(String.format("Score of A %.1f%%, Elo difference %.1f +/- %.1f",
+                score * 100, elo, eloError));
+
+        for (int i = 0; i < mConfigs.length; i++) {
+            mConfigs[i].report(i == 0 ? "A" : "B");
+        }
+    }
+
+    private static double square(double x) {
+        return x * x;
+    }
+
+    /**
+     * @param score share of the points won, between 0 and 1
+     * @return the Elo difference giving that score, infinite for 0 and 1
+     */
+    private static double toElo(double score) {
+        return -400 * Math.log10(1 / score - 1);
+    }
+
+    /**
+     * One game between two bots. The bot always thinks it plays yellow, the second player, so the
+     * bot playing red is shown the board with the colors swapped.
+     */
+    private static class Game {
+
+        private final BoardGeometry mGeometry;
+        private final Connect4Position mPosition;
+        private final Connect4Model.Color mBoard[][];
+        private final Connect4Model.Color mSwappedBoard[][];
+
+        Game(BoardGeometry geometry) {
+            mGeometry = geometry;
+            mPosition = new Connect4Position(geometry);
+            mBoard = new Connect4Model.Color[geometry.getWidth()][geometry.getHeight()];
+            mSwappedBoard = new Connect4Model.Color[geometry.getWidth()][geometry.getHeight()];
+        }
+
+        /**
+         * @param red bot playing first
+         * @param yellow bot playing second
+         * @param redConfig configuration of the first bot, gets its statistics
+         * @param yellowConfig configuration of the second bot, gets its statistics
+         * @param random chooses the opening moves
+         * @param openingPlies number of random moves played before the bots take over
+         * @return the player who won, or NO_PLAYER for a draw
+         */
+        int play(Connect4Bot red, Connect4Bot yellow, BotConfig redConfig, BotConfig yellowConfig,
+                 Random random, int openingPlies) {
+
+            for (int x = 0; x < mGeometry.getWidth(); x++) {
+                Arrays.fill(mBoard[x], Connect4Model.Color.EMPTY);
+                Arrays.fill(mSwappedBoard[x], Connect4Model.Color.EMPTY);
+            }
+            mPosition.setBoard(mBoard, Connect4Model.Color.RED);
+
+            //Random moves which don't win, the bots could otherwise start from a lost position
+            while (mPosition.getMoves() < openingPlies) {
+                int col = random.nextInt(mGeometry.getWidth());
+                if (mPosition.canPlay(col)) {
+                    mPosition.play(col);
+                    boolean won = mPosition.lastMoveWon();
+                    mPosition.undo(col);
+                    if (!won) {
+                        play(col);
+                    }
+                }
+            }
+
+            while (mPosition.getSpacesLeft() > 0) {
+                boolean redToMove = mPosition.getPlayer() == Connect4Position.PLAYER_RED;
+                Connect4Bot bot = redToMove ? red : yellow;
+
+                long start = System.nanoTime();
+                int col = bot.getNextMove(redToMove ? mSwappedBoard : mBoard);
+                (redToMove ? redConfig : yellowConfig).addMove(System.nanoTime() - start, bot.getSearchStats());
+
+                if (play(col)) {
+                    return redToMove ? Connect4Position.PLAYER_RED : Connect4Position.PLAYER_YELLOW;
+                }
+            }
+            return Connect4Position.NO_PLAYER;
+        }
+
+        /**
+         * @param col column to play in
+         * @return true if the move won
+         */
+        private boolean play(int col) {
+
+            boolean red = mPosition.getPlayer() == Connect4Position.PLAYER_RED;
+            int row = 0;
+            while (mBoard[col][row] != Connect4Model.Color.EMPTY) {
+                row++;
+            }
+            mBoard[col][row] = red ? Connect4Model.Color.RED : Connect4Model.Color.YELLOW;
+            mSwappedBoard[col][row] = red ? Connect4Model.Color.YELLOW : Connect4Model.Color.RED;
+            mPosition.play(col);
+            return mPosition.lastMoveWon();
+        }
+    }
+
+    /**
+     * Settings of one of the bots, and the statistics of its moves over the whole tournament
+     */
+    private static class BotConfig {
+
+        private final String mName;
+        private int mMoveTime = Connect4Bot.MAX_TIME;
+        private int mMaxDepth = Difficulty.NO_LIMIT;
+        private int mNodeBudget = Difficulty.NO_LIMIT;
+        private int mTableMegabytes = Connect4Bot.DEFAULT_TABLE_MEMORY / (1024 * 1024);
+        private int mOrderingSources = MoveOrderer.ALL_SOURCES;
+        private int mSolverEmptyCells = Connect4Bot.DEFAULT_SOLVER_EMPTY_CELLS;
+
+        //Moves from the book or the solver don't count towards the positions searched per second
+        private long mNodes;
+        private long mSearchNanos;
+        private int mMoveCount;
+        private long mMoveNanos[] = new long[1024];
+
+        private BotConfig(String name) {
+            mName = name;
+        }
+
+        /**
+         * @param spec comma separated key=value settings, see SelfPlayTournament
+         * @return the configuration
+         */
+        static BotConfig parse(String spec) {
+
+            BotConfig config = new BotConfig(spec);
+            for (String setting : spec.split(",")) {
+                String parts[] = setting.split("=");
+                if (parts.length != 2) {
+                    throw new IllegalArgumentException("Not a setting: " + setting);
+                }
+                int value = Integer.parseInt(parts[1]);
+                if (parts[0].equals("time")) {
+                    config.mMoveTime = value;
+                }
+                else if (parts[0].equals("depth")) {
+                    config.mMaxDepth = value;
+                }
+                else if (parts[0].equals("nodes")) {
+                    config.mNodeBudget = value;
+                }
+                else if (parts[0].equals("table")) {
+                    config.mTableMegabytes = value;
+                }
+                else if (parts[0].equals("sources")) {
+                    config.mOrderingSources = value;
+                }
+                else if (parts[0].equals("solver")) {
+                    config.mSolverEmptyCells = value;
+                }
+                else {
+                    throw new IllegalArgumentException("Unknown setting: " + parts[0]);
+                }
+            }
+            return config;
+        }
+
+        Connect4Bot createBot(BoardGeometry geometry) {
+            Connect4Bot bot = new Connect4Bot(geometry, mTableMegabytes * 1024 * 1024, 1, mOrderingSources);
+            bot.setDifficulty(new Difficulty(mName, mMaxDepth, mNodeBudget, mMoveTime, mSolverEmptyCells, true));
+            return bot;
+        }
+
+        synchronized void addMove(long nanos, SearchStats stats) {
+            if (mMoveCount == mMoveNanos.length) {
+                mMoveNanos = Arrays.copyOf(mMoveNanos, mMoveCount * 2);
+            }
+            mMoveNanos[mMoveCount++] = nanos;
+            if (stats.getSource() == SearchStats.SOURCE_SEARCH) {
+                mSearchNanos += nanos;
+                mNodes += stats.getNodes();
+            }
+        }
+
+        synchronized void report(String label) {
+
+            long times[] = Arrays.copyOf(mMoveNanos, mMoveCount);
+            Arrays.sort(times);
+            System.out.println(String.format("%s: %d moves, %.0f knodes/s, move time ms p50 %.1f p90 %.1f "
+                            + "p99 %.1f max %.1f", label, mMoveCount, mNodes * 1e6 / Math.max(mSearchNanos, 1),
+                    percentile(times, 50), percentile(times, 90), percentile(times, 99),
+                    percentile(times, 100)));
+        }
+
+        /**
+         * @param sorted move times in nanoseconds, sorted
+         * @param percent percentile wanted
+         * @return the percentile in milliseconds
+         */
+        private static double percentile(long sorted[], int percent) {
+            if (sorted.length == 0) {
+                return 0;
+            }
+            int index = (int) Math.ceil(percent / 100.0 * sorted.length) - 1;
+            return sorted[Math.max(index, 0)] / 1e6;
+        }
+
+        @Override
+        public String toString() {
+            return mName;
+        }
+    }
+}